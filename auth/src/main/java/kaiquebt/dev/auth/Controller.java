@@ -3,20 +3,36 @@ package kaiquebt.dev.auth;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+
 import kaiquebt.dev.auth.dto.JwtAuthResponse;
 import kaiquebt.dev.auth.dto.LoginDto;
+import kaiquebt.dev.auth.dto.RefreshTokenDto;
+import kaiquebt.dev.auth.dto.SessionHistoryExportFormat;
 import kaiquebt.dev.auth.service.BaseAuthService;
 import kaiquebt.dev.auth.service.CustomUserDetails;
+import kaiquebt.dev.auth.service.LoginRejectedException;
+import kaiquebt.dev.auth.service.SigningKeyRing;
+import kaiquebt.dev.auth.service.UserSessionLogService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 
 
@@ -48,19 +64,29 @@ public class Controller {
     }
     
     private final BaseAuthService authService;
+    private final UserSessionLogService sessionLogService;
+    // only available when kaiquebt.dev.auth.key-ring.enabled is true
+    private final ObjectProvider<SigningKeyRing<?>> signingKeyRing;
 
     @PostMapping("/login")
     public ResponseEntity<StandardResponse<JwtAuthResponse>> login(@RequestBody LoginDto loginDto) {
         try {
-            String token = authService.login(loginDto);
-            JwtAuthResponse response = new JwtAuthResponse();
-            response.setAccessToken(token);
+            JwtAuthResponse response = authService.loginWithTokens(loginDto);
             
             return ResponseEntity.ok(new StandardResponse<>(
                 true, 
                 "Login realizado com sucesso", 
                 response
             ));
+        } catch (LoginRejectedException e) {
+            log.warn("Login rejected by the limiter: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(new StandardResponse<>(
+                    false,
+                    "Muitas tentativas de login no momento. Tente novamente em instantes",
+                    null
+                ));
         } catch (Exception e) {
             log.error("Error on login", e);
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(
@@ -139,7 +165,7 @@ public class Controller {
     ) {
         // Should only work if was never set a password on this account
         try {
-            this.authService.defineFirstPassword(userDetails.getUser().getId(), dto.getPassword());
+            this.authService.defineFirstPassword(userDetails.getUserId(), dto.getPassword());
             return ResponseEntity.ok(
                 new StandardResponse<>(
                     true,
@@ -156,7 +182,7 @@ public class Controller {
                 )
             );
         } catch (Exception e) {
-            log.error("Error on define first password for user id "+userDetails.getUser().getId(), e);
+            log.error("Error on define first password for user id "+userDetails.getUserId(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(
                 new StandardResponse<>(
                     false,
@@ -167,6 +193,42 @@ public class Controller {
         }
     }
 
+    @GetMapping("/session-history/export")
+    public ResponseEntity<StreamingResponseBody> exportSessionHistory(
+        @AuthenticationPrincipal CustomUserDetails userDetails,
+        @RequestParam(defaultValue = "ndjson") String format,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate
+    ) {
+        if (userDetails == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        SessionHistoryExportFormat exportFormat;
+        try {
+            exportFormat = SessionHistoryExportFormat.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        Long userId = userDetails.getUserId();
+        // rows are written while they are read, nothing is buffered besides the writer
+        StreamingResponseBody body = out -> {
+            try {
+                this.sessionLogService.exportSessionHistory(userId, startDate, endDate, exportFormat, out);
+            } catch (Exception e) {
+                log.error("Error on export session history for user id "+userId, e);
+                throw e;
+            }
+        };
+
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+            .header(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"session-history." + exportFormat.getExtension() + "\"")
+            .body(body);
+    }
+
     @PostMapping("recover-account/send-email")
     public ResponseEntity<StandardResponse<String>> sendRecoverEmail(
         @RequestParam String email
@@ -224,18 +286,118 @@ public class Controller {
         return null;
     }
 
-    // @PostMapping("refresh")
-    // public ResponseEntity<JwtAuthResponse> refresh(@RequestBody RefreshJWTDto dto) {
-    //     JwtAuthResponse response = new JwtAuthResponse();
-    //     if (dto.getImpersonatorToken() != null && !dto.getImpersonatorToken().strip().isEmpty()) {
-    //         String[] newTokens = this.authService.refreshWithImpersonator(dto.getToken(), dto.getImpersonatorToken());            
-    //         response.setAccessToken(newTokens[0]);
-    //         response.setPerformerToken(newTokens[1]);
-    //     } else {
-    //         String token = this.authService.refresh(dto.getToken());
-    //         response.setAccessToken(token);
-    //     }
-               
-    //     return ResponseEntity.ok(response);
-    // }    
+    @PostMapping("/refresh")
+    public ResponseEntity<StandardResponse<JwtAuthResponse>> refresh(@RequestBody RefreshTokenDto dto) {
+        try {
+            JwtAuthResponse response = authService.refresh(dto.getRefreshToken());
+            return ResponseEntity.ok(new StandardResponse<>(
+                true,
+                "Token renovado com sucesso",
+                response
+            ));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(
+                new StandardResponse<>(
+                    false,
+                    e.getMessage(),
+                    null
+                )
+            );
+        } catch (Exception e) {
+            log.error("Error on refresh", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(
+                new StandardResponse<>(
+                    false,
+                    "Ocorreu um erro ao renovar o token. Tente novamente mais tarde",
+                    null
+                )
+            );
+        }
+    }
+
+    @PostMapping("/logout")
+    public ResponseEntity<StandardResponse<String>> logout(
+        @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization,
+        @RequestBody(required = false) RefreshTokenDto dto
+    ) {
+        if (authorization == null || !authorization.startsWith("Bearer ")) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(
+                new StandardResponse<>(
+                    false,
+                    "Token não informado",
+                    null
+                )
+            );
+        }
+        try {
+            this.authService.logout(authorization.substring(7), dto != null ? dto.getRefreshToken() : null);
+            return ResponseEntity.ok(new StandardResponse<>(
+                true,
+                "Logout realizado com sucesso",
+                null
+            ));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(
+                new StandardResponse<>(
+                    false,
+                    e.getMessage(),
+                    null
+                )
+            );
+        } catch (Exception e) {
+            log.error("Error on logout", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(
+                new StandardResponse<>(
+                    false,
+                    "Ocorreu um erro ao realizar o logout. Tente novamente mais tarde",
+                    null
+                )
+            );
+        }
+    }
+
+    @PostMapping("/logout-all")
+    public ResponseEntity<StandardResponse<String>> logoutAll(@AuthenticationPrincipal CustomUserDetails userDetails) {
+        if (userDetails == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        try {
+            this.authService.logoutAll(userDetails.getUserId());
+            return ResponseEntity.ok(new StandardResponse<>(
+                true,
+                "Logout realizado em todos os dispositivos",
+                null
+            ));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(
+                new StandardResponse<>(
+                    false,
+                    e.getMessage(),
+                    null
+                )
+            );
+        } catch (Exception e) {
+            log.error("Error on logout all for user id "+userDetails.getUserId(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(
+                new StandardResponse<>(
+                    false,
+                    "Ocorreu um erro ao realizar o logout. Tente novamente mais tarde",
+                    null
+                )
+            );
+        }
+    }
+
+    @GetMapping("/.well-known/jwks.json")
+    public ResponseEntity<Map<String, Object>> jwks() {
+        SigningKeyRing<?> ring = this.signingKeyRing.getIfAvailable();
+        if (ring == null) {
+            return ResponseEntity.notFound().build();
+        }
+        // plain JWK Set, verifiers expect it without the StandardResponse wrapper
+        return ResponseEntity.ok()
+            .cacheControl(CacheControl.maxAge(Duration.ofSeconds(ring.getJwksMaxAgeSeconds())).cachePublic())
+            .contentType(MediaType.parseMediaType("application/jwk-set+json"))
+            .body(ring.getJwks());
+    }
 }
@@ -0,0 +1,18 @@
+package kaiquebt.dev.auth.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "kaiquebt.dev.auth.metrics")
+public class AuthMetricsProperties {
+    private boolean enabled = false;
+    // percentile histogram buckets, needed to aggregate latency across instances
+    private boolean histograms = true;
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public boolean isHistograms() { return histograms; }
+    public void setHistograms(boolean histograms) { this.histograms = histograms; }
+}
@@ -0,0 +1,49 @@
+package kaiquebt.dev.auth.config;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Creates the threads of the auth background work (outbox, session log writer, pollers).
+ * They are virtual threads when spring.threads.virtual.enabled is true and the runtime is
+ * Java 21 or newer, the same switch Spring Boot uses for Tomcat and its own executors.
+ * Otherwise they are daemon platform threads, as before
+ */
+@Slf4j
+@Component
+public class AuthThreads {
+    private final boolean virtual;
+
+    public AuthThreads(Environment environment) {
+        this.virtual = Threading.VIRTUAL.isActive(environment);
+        if (virtual) {
+            log.info("✓ Auth background work runs on virtual threads");
+        }
+    }
+
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    /**
+     * Threads named prefix-1, prefix-2...
+     */
+    public ThreadFactory threadFactory(String prefix) {
+        if (virtual) {
+            return new VirtualThreadTaskExecutor(prefix + "-").getVirtualThreadFactory();
+        }
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,19 @@
+package kaiquebt.dev.auth.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "kaiquebt.dev.auth.bulk-signup")
+public class BulkSignupProperties {
+    // rows checked, inserted and committed together
+    private int chunkSize = 500;
+    // chunks processed at the same time, each one holds a database connection
+    private int parallelism = 4;
+
+    public int getChunkSize() { return chunkSize; }
+    public void setChunkSize(int chunkSize) { this.chunkSize = chunkSize; }
+
+    public int getParallelism() { return parallelism; }
+    public void setParallelism(int parallelism) { this.parallelism = parallelism; }
+}
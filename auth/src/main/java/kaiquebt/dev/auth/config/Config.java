@@ -3,7 +3,6 @@ package kaiquebt.dev.auth.config;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
 import kaiquebt.dev.auth.service.IPasswordValidator;
@@ -11,8 +10,8 @@ import kaiquebt.dev.auth.service.IPasswordValidator;
 @Configuration
 public class Config {
     @Bean
-    public static PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public static PasswordEncoder passwordEncoder(PasswordHashingProperties properties) {
+        return PasswordEncoders.create(properties);
     }    
 
     //bean for password validator when missing
@@ -0,0 +1,41 @@
+package kaiquebt.dev.auth.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "kaiquebt.dev.auth.mail.outbox")
+public class EmailOutboxProperties {
+    private boolean enabled = false;
+    private int workers = 4;
+    private int batchSize = 50;
+    private long pollIntervalMs = 1000;
+    private int maxAttempts = 8;
+    private long initialBackoffMs = 5000;
+    private long maxBackoffMs = 3_600_000;
+    private long leaseMs = 60_000;
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public int getWorkers() { return workers; }
+    public void setWorkers(int workers) { this.workers = workers; }
+
+    public int getBatchSize() { return batchSize; }
+    public void setBatchSize(int batchSize) { this.batchSize = batchSize; }
+
+    public long getPollIntervalMs() { return pollIntervalMs; }
+    public void setPollIntervalMs(long pollIntervalMs) { this.pollIntervalMs = pollIntervalMs; }
+
+    public int getMaxAttempts() { return maxAttempts; }
+    public void setMaxAttempts(int maxAttempts) { this.maxAttempts = maxAttempts; }
+
+    public long getInitialBackoffMs() { return initialBackoffMs; }
+    public void setInitialBackoffMs(long initialBackoffMs) { this.initialBackoffMs = initialBackoffMs; }
+
+    public long getMaxBackoffMs() { return maxBackoffMs; }
+    public void setMaxBackoffMs(long maxBackoffMs) { this.maxBackoffMs = maxBackoffMs; }
+
+    public long getLeaseMs() { return leaseMs; }
+    public void setLeaseMs(long leaseMs) { this.leaseMs = leaseMs; }
+}
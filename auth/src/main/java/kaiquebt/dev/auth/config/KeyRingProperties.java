@@ -0,0 +1,46 @@
+package kaiquebt.dev.auth.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "kaiquebt.dev.auth.key-ring")
+public class KeyRingProperties {
+    private boolean enabled = false;
+    // 0 disables scheduled rotation
+    private long rotationIntervalSeconds = 604_800;
+    // new keys are published this long before they sign, must exceed jwks-max-age-seconds
+    private long prepublishSeconds = 3_600;
+    private long reloadIntervalMs = 60_000;
+    private long jwksMaxAgeSeconds = 900;
+    // tokens without kid are still checked against jwt-secret, for the migration window
+    private boolean acceptHmacTokens = true;
+    // private keys are stored encrypted with AES-GCM, rows written before stay readable
+    private boolean encryptPrivateKeys = true;
+    // base64 AES key (16 or 32 bytes), blank derives one from jwt-secret
+    private String encryptionKey;
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public long getRotationIntervalSeconds() { return rotationIntervalSeconds; }
+    public void setRotationIntervalSeconds(long rotationIntervalSeconds) { this.rotationIntervalSeconds = rotationIntervalSeconds; }
+
+    public long getPrepublishSeconds() { return prepublishSeconds; }
+    public void setPrepublishSeconds(long prepublishSeconds) { this.prepublishSeconds = prepublishSeconds; }
+
+    public long getReloadIntervalMs() { return reloadIntervalMs; }
+    public void setReloadIntervalMs(long reloadIntervalMs) { this.reloadIntervalMs = reloadIntervalMs; }
+
+    public long getJwksMaxAgeSeconds() { return jwksMaxAgeSeconds; }
+    public void setJwksMaxAgeSeconds(long jwksMaxAgeSeconds) { this.jwksMaxAgeSeconds = jwksMaxAgeSeconds; }
+
+    public boolean isAcceptHmacTokens() { return acceptHmacTokens; }
+    public void setAcceptHmacTokens(boolean acceptHmacTokens) { this.acceptHmacTokens = acceptHmacTokens; }
+
+    public boolean isEncryptPrivateKeys() { return encryptPrivateKeys; }
+    public void setEncryptPrivateKeys(boolean encryptPrivateKeys) { this.encryptPrivateKeys = encryptPrivateKeys; }
+
+    public String getEncryptionKey() { return encryptionKey; }
+    public void setEncryptionKey(String encryptionKey) { this.encryptionKey = encryptionKey; }
+}
@@ -0,0 +1,26 @@
+package kaiquebt.dev.auth.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "kaiquebt.dev.auth.login-limiter")
+public class LoginLimiterProperties {
+    private boolean enabled = false;
+    // 0 uses the number of available processors
+    private int maxConcurrent = 0;
+    private int maxQueue = 100;
+    private long queueTimeoutMs = 500;
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public int getMaxConcurrent() { return maxConcurrent; }
+    public void setMaxConcurrent(int maxConcurrent) { this.maxConcurrent = maxConcurrent; }
+
+    public int getMaxQueue() { return maxQueue; }
+    public void setMaxQueue(int maxQueue) { this.maxQueue = maxQueue; }
+
+    public long getQueueTimeoutMs() { return queueTimeoutMs; }
+    public void setQueueTimeoutMs(long queueTimeoutMs) { this.queueTimeoutMs = queueTimeoutMs; }
+}
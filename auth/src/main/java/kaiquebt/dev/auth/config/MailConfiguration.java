@@ -2,6 +2,7 @@ package kaiquebt.dev.auth.config;
 
 import java.util.Properties;
 
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Lazy;
@@ -15,7 +16,7 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class MailConfiguration {
     
-    public static class CustomMailSenderWrapper {
+    public static class CustomMailSenderWrapper implements DisposableBean {
         private final JavaMailSender mailSender;
 
         public CustomMailSenderWrapper() {
@@ -33,18 +34,27 @@ public class MailConfiguration {
         public JavaMailSender getMailSender() {
             return mailSender;
         }
+
+        @Override
+        public void destroy() throws Exception {
+            if (mailSender instanceof DisposableBean disposable) {
+                disposable.destroy();
+            }
+        }
     }
 
     @Bean
-    public CustomMailSenderWrapper customMailSenderWrapper(CustomMailProperties customProps) {        
+    public CustomMailSenderWrapper customMailSenderWrapper(CustomMailProperties customProps, MailPoolProperties poolProps) {        
         if (customProps.isConfigured()) {
-            return new CustomMailSenderWrapper(createCustomMailSender(customProps));
+            return new CustomMailSenderWrapper(createCustomMailSender(customProps, poolProps));
         }
         return new CustomMailSenderWrapper();
     }
     
-    private JavaMailSender createCustomMailSender(CustomMailProperties props) {
-        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+    private JavaMailSender createCustomMailSender(CustomMailProperties props, MailPoolProperties poolProps) {
+        JavaMailSenderImpl mailSender = poolProps.isEnabled()
+            ? new PooledJavaMailSender(poolProps)
+            : new JavaMailSenderImpl();
         
         mailSender.setHost(props.getHost());
         mailSender.setPort(props.getPort());
@@ -0,0 +1,29 @@
+package kaiquebt.dev.auth.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "kaiquebt.dev.auth.mail.pool")
+public class MailPoolProperties {
+    private boolean enabled = false;
+    private int maxConnections = 4;
+    private long maxIdleMs = 60_000;
+    private long validateAfterIdleMs = 5_000;
+    private long borrowTimeoutMs = 10_000;
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public int getMaxConnections() { return maxConnections; }
+    public void setMaxConnections(int maxConnections) { this.maxConnections = maxConnections; }
+
+    public long getMaxIdleMs() { return maxIdleMs; }
+    public void setMaxIdleMs(long maxIdleMs) { this.maxIdleMs = maxIdleMs; }
+
+    public long getValidateAfterIdleMs() { return validateAfterIdleMs; }
+    public void setValidateAfterIdleMs(long validateAfterIdleMs) { this.validateAfterIdleMs = validateAfterIdleMs; }
+
+    public long getBorrowTimeoutMs() { return borrowTimeoutMs; }
+    public void setBorrowTimeoutMs(long borrowTimeoutMs) { this.borrowTimeoutMs = borrowTimeoutMs; }
+}
@@ -1,8 +1,12 @@
 package kaiquebt.dev.auth.config;
 
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
 import org.springframework.stereotype.Component;
 
 import kaiquebt.dev.auth.config.MailConfiguration.CustomMailSenderWrapper;
@@ -11,13 +15,20 @@ import lombok.extern.slf4j.Slf4j;
 
 @Component
 @Slf4j
-public class MailSenderFactory {
+public class MailSenderFactory implements DisposableBean {
     @Autowired
     private JavaMailSender defaultMailSender;
 
     @Autowired
     private CustomMailSenderWrapper customMailSenderWrapper;
 
+    @Autowired
+    private MailPoolProperties mailPoolProperties;
+
+    // pooled copy of the spring.mail sender, created on first use when pooling is enabled
+    private PooledJavaMailSender pooledDefaultMailSender;
+    private final ReentrantLock pooledMailSenderLock = new ReentrantLock();
+
     private static boolean first = false;
 
     public JavaMailSender getMailSender() {
@@ -35,8 +46,32 @@ public class MailSenderFactory {
         if (hasCustomMailSender) {
             return customMailSenderWrapper.getMailSender();
         }
+        if (mailPoolProperties.isEnabled() && defaultMailSender instanceof JavaMailSenderImpl impl) {
+            return pooledDefaultMailSender(impl);
+        }
         return defaultMailSender;
 
     }
 
+    // a lock instead of synchronized, which pins virtual threads on Java 21
+    private JavaMailSender pooledDefaultMailSender(JavaMailSenderImpl source) {
+        pooledMailSenderLock.lock();
+        try {
+            if (pooledDefaultMailSender == null) {
+                pooledDefaultMailSender = PooledJavaMailSender.from(source, mailPoolProperties);
+                log.info("✓ Pooling SMTP connections: up to {} connections", mailPoolProperties.getMaxConnections());
+            }
+            return pooledDefaultMailSender;
+        } finally {
+            pooledMailSenderLock.unlock();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (pooledDefaultMailSender != null) {
+            pooledDefaultMailSender.destroy();
+        }
+    }
+
 }
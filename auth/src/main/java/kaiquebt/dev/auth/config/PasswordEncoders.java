@@ -0,0 +1,175 @@
+package kaiquebt.dev.auth.config;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntFunction;
+
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder.SecretKeyFactoryAlgorithm;
+import org.springframework.util.ClassUtils;
+
+import kaiquebt.dev.auth.config.PasswordHashingProperties.Algorithm;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Builds the password encoder from PasswordHashingProperties. Hashes are stored with an
+ * {id} prefix so the algorithm can change without invalidating existing passwords
+ */
+@Slf4j
+public final class PasswordEncoders {
+    // Argon2PasswordEncoder needs BouncyCastle, which is an optional dependency
+    private static final boolean ARGON2_AVAILABLE = ClassUtils.isPresent(
+        "org.bouncycastle.crypto.generators.Argon2BytesGenerator", PasswordEncoders.class.getClassLoader()
+    );
+    private static final int MAX_BCRYPT_STRENGTH = 16;
+    private static final int MAX_ITERATIONS = 10_000_000;
+    private static final String CALIBRATION_SAMPLE = "calibration-Sample-123";
+
+    private PasswordEncoders() {}
+
+    public static PasswordEncoder create(PasswordHashingProperties props) {
+        Algorithm algorithm = props.getAlgorithm();
+        if (algorithm == Algorithm.ARGON2 && !ARGON2_AVAILABLE) {
+            throw new IllegalStateException("Argon2 requer a dependência org.bouncycastle:bcprov-jdk18on");
+        }
+
+        int bcryptStrength = props.getBcryptStrength();
+        int pbkdf2Iterations = props.getPbkdf2Iterations();
+        int argon2Iterations = props.getArgon2Iterations();
+
+        // calibration only raises the cost of the algorithm used for new hashes, never lowers it
+        if (props.isCalibrate()) {
+            long target = props.getCalibrationTargetMs();
+            switch (algorithm) {
+                case BCRYPT -> bcryptStrength = calibrateBcrypt(bcryptStrength, target);
+                case PBKDF2 -> pbkdf2Iterations = calibrateIterations(pbkdf2Iterations, target, PasswordEncoders::pbkdf2);
+                case ARGON2 -> argon2Iterations = calibrateIterations(argon2Iterations, target,
+                    iterations -> argon2(props.getArgon2MemoryKb(), iterations, props.getArgon2Parallelism()));
+            }
+        }
+
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(bcryptStrength);
+        Map<String, PasswordEncoder> encoders = new HashMap<>();
+        encoders.put("bcrypt", bcrypt);
+        encoders.put("pbkdf2", pbkdf2(pbkdf2Iterations));
+        if (ARGON2_AVAILABLE) {
+            encoders.put("argon2", argon2(props.getArgon2MemoryKb(), argon2Iterations, props.getArgon2Parallelism()));
+        }
+
+        String idForEncode = algorithm.name().toLowerCase();
+        log.info("Password hashing: {} (bcrypt strength {}, pbkdf2 iterations {}, argon2 iterations {})",
+            idForEncode, bcryptStrength, pbkdf2Iterations, argon2Iterations);
+
+        DelegatingPasswordEncoder delegating = new DelegatingPasswordEncoder(idForEncode, encoders);
+        // hashes stored before the prefix existed are plain bcrypt
+        delegating.setDefaultPasswordEncoderForMatches(bcrypt);
+        return delegating;
+    }
+
+    private static PasswordEncoder pbkdf2(int iterations) {
+        return new IterationsPbkdf2PasswordEncoder(iterations);
+    }
+
+    private static Pbkdf2PasswordEncoder plainPbkdf2(int iterations) {
+        return new Pbkdf2PasswordEncoder("", 16, iterations, SecretKeyFactoryAlgorithm.PBKDF2WithHmacSHA256);
+    }
+
+    /**
+     * Pbkdf2PasswordEncoder only stores salt and hash and matches with its own iterations,
+     * so changing pbkdf2-iterations or calibrating would break every stored hash. This one
+     * stores the iterations in front of the hash ({pbkdf2}iterations$hash) and matches with
+     * them. Hashes without them were written at the configured iterations and get them on
+     * the next login
+     */
+    static final class IterationsPbkdf2PasswordEncoder implements PasswordEncoder {
+        private static final char SEPARATOR = '$';
+
+        private final int iterations;
+        private final Map<Integer, Pbkdf2PasswordEncoder> encoders = new ConcurrentHashMap<>();
+
+        IterationsPbkdf2PasswordEncoder(int iterations) {
+            this.iterations = iterations;
+        }
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            return iterations + String.valueOf(SEPARATOR) + encoder(iterations).encode(rawPassword);
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            if (encodedPassword == null) {
+                return false;
+            }
+            int separator = encodedPassword.indexOf(SEPARATOR);
+            if (separator < 0) {
+                return encoder(iterations).matches(rawPassword, encodedPassword);
+            }
+            int stored = parseIterations(encodedPassword.substring(0, separator));
+            return stored > 0 && encoder(stored).matches(rawPassword, encodedPassword.substring(separator + 1));
+        }
+
+        @Override
+        public boolean upgradeEncoding(String encodedPassword) {
+            if (encodedPassword == null) {
+                return false;
+            }
+            int separator = encodedPassword.indexOf(SEPARATOR);
+            return separator < 0 || parseIterations(encodedPassword.substring(0, separator)) < iterations;
+        }
+
+        private Pbkdf2PasswordEncoder encoder(int iterations) {
+            return encoders.computeIfAbsent(iterations, PasswordEncoders::plainPbkdf2);
+        }
+
+        private static int parseIterations(String value) {
+            try {
+                return Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+    }
+
+    private static PasswordEncoder argon2(int memoryKb, int iterations, int parallelism) {
+        return new Argon2PasswordEncoder(16, 32, parallelism, memoryKb, iterations);
+    }
+
+    private static int calibrateBcrypt(int strength, long targetMs) {
+        long elapsed = measure(new BCryptPasswordEncoder(strength));
+        // each step doubles the work
+        while (strength < MAX_BCRYPT_STRENGTH && elapsed * 2 <= targetMs) {
+            strength++;
+            elapsed = measure(new BCryptPasswordEncoder(strength));
+        }
+        log.info("Calibrated bcrypt strength {} ({} ms per hash, target {} ms)", strength, elapsed, targetMs);
+        return strength;
+    }
+
+    private static int calibrateIterations(int iterations, long targetMs, IntFunction<PasswordEncoder> factory) {
+        long elapsed = Math.max(1, measure(factory.apply(iterations)));
+        if (elapsed < targetMs) {
+            // cost grows linearly with the iterations
+            iterations = (int) Math.min(MAX_ITERATIONS, (long) iterations * targetMs / elapsed);
+        }
+        log.info("Calibrated {} iterations ({} ms per hash before calibration, target {} ms)", iterations, elapsed, targetMs);
+        return iterations;
+    }
+
+    // best of three after a warm up run, in milliseconds
+    private static long measure(PasswordEncoder encoder) {
+        encoder.encode(CALIBRATION_SAMPLE);
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            long start = System.nanoTime();
+            encoder.encode(CALIBRATION_SAMPLE);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best / 1_000_000;
+    }
+}
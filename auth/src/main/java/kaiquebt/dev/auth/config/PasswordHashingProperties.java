@@ -0,0 +1,47 @@
+package kaiquebt.dev.auth.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "kaiquebt.dev.auth.password")
+public class PasswordHashingProperties {
+    public enum Algorithm { BCRYPT, ARGON2, PBKDF2 }
+
+    private Algorithm algorithm = Algorithm.BCRYPT;
+    private int bcryptStrength = 10;
+    private int pbkdf2Iterations = 310_000;
+    private int argon2MemoryKb = 19_456;
+    private int argon2Iterations = 2;
+    private int argon2Parallelism = 1;
+    private boolean upgradeOnLogin = true;
+    private boolean calibrate = false;
+    private long calibrationTargetMs = 250;
+
+    public Algorithm getAlgorithm() { return algorithm; }
+    public void setAlgorithm(Algorithm algorithm) { this.algorithm = algorithm; }
+
+    public int getBcryptStrength() { return bcryptStrength; }
+    public void setBcryptStrength(int bcryptStrength) { this.bcryptStrength = bcryptStrength; }
+
+    public int getPbkdf2Iterations() { return pbkdf2Iterations; }
+    public void setPbkdf2Iterations(int pbkdf2Iterations) { this.pbkdf2Iterations = pbkdf2Iterations; }
+
+    public int getArgon2MemoryKb() { return argon2MemoryKb; }
+    public void setArgon2MemoryKb(int argon2MemoryKb) { this.argon2MemoryKb = argon2MemoryKb; }
+
+    public int getArgon2Iterations() { return argon2Iterations; }
+    public void setArgon2Iterations(int argon2Iterations) { this.argon2Iterations = argon2Iterations; }
+
+    public int getArgon2Parallelism() { return argon2Parallelism; }
+    public void setArgon2Parallelism(int argon2Parallelism) { this.argon2Parallelism = argon2Parallelism; }
+
+    public boolean isUpgradeOnLogin() { return upgradeOnLogin; }
+    public void setUpgradeOnLogin(boolean upgradeOnLogin) { this.upgradeOnLogin = upgradeOnLogin; }
+
+    public boolean isCalibrate() { return calibrate; }
+    public void setCalibrate(boolean calibrate) { this.calibrate = calibrate; }
+
+    public long getCalibrationTargetMs() { return calibrationTargetMs; }
+    public void setCalibrationTargetMs(long calibrationTargetMs) { this.calibrationTargetMs = calibrationTargetMs; }
+}
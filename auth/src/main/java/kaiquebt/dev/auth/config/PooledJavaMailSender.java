@@ -0,0 +1,202 @@
+package kaiquebt.dev.auth.config;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.lang.Nullable;
+import org.springframework.mail.MailAuthenticationException;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import jakarta.mail.Address;
+import jakarta.mail.AuthenticationFailedException;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * JavaMailSenderImpl opens, authenticates and closes one SMTP connection per send call.
+ * This sender keeps up to maxConnections authenticated transports and hands them out
+ * to the threads sending mail, checking idle ones with a NOOP before reusing them
+ */
+@Slf4j
+public class PooledJavaMailSender extends JavaMailSenderImpl implements DisposableBean {
+    private static final String HEADER_MESSAGE_ID = "Message-ID";
+
+    private final MailPoolProperties poolProperties;
+    // One permit per connection that may be open, idle connections don't hold a permit
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<PooledTransport> idle = new LinkedBlockingDeque<>();
+    private volatile boolean closed = false;
+
+    private static class PooledTransport {
+        private final Transport transport;
+        private long lastUsedAt;
+
+        PooledTransport(Transport transport) {
+            this.transport = transport;
+            this.lastUsedAt = System.currentTimeMillis();
+        }
+    }
+
+    public PooledJavaMailSender(MailPoolProperties poolProperties) {
+        this.poolProperties = poolProperties;
+        this.permits = new Semaphore(poolProperties.getMaxConnections());
+    }
+
+    /**
+     * Copies the connection settings of an existing sender, used to pool the
+     * sender auto-configured by Spring from spring.mail
+     */
+    public static PooledJavaMailSender from(JavaMailSenderImpl source, MailPoolProperties poolProperties) {
+        PooledJavaMailSender pooled = new PooledJavaMailSender(poolProperties);
+        pooled.setHost(source.getHost());
+        pooled.setPort(source.getPort());
+        pooled.setUsername(source.getUsername());
+        pooled.setPassword(source.getPassword());
+        pooled.setProtocol(source.getProtocol());
+        pooled.setDefaultEncoding(source.getDefaultEncoding());
+        pooled.setJavaMailProperties(source.getJavaMailProperties());
+        return pooled;
+    }
+
+    @Override
+    protected void doSend(MimeMessage[] mimeMessages, @Nullable Object[] originalMessages) throws MailException {
+        Map<Object, Exception> failedMessages = new LinkedHashMap<>();
+        PooledTransport pooled = borrow(mimeMessages, originalMessages);
+        boolean reusable = true;
+
+        try {
+            for (int i = 0; i < mimeMessages.length; i++) {
+                MimeMessage mimeMessage = mimeMessages[i];
+                Object original = (originalMessages != null ? originalMessages[i] : mimeMessage);
+                try {
+                    prepare(mimeMessage);
+                } catch (Exception ex) {
+                    failedMessages.put(original, ex);
+                    continue;
+                }
+
+                try {
+                    send(pooled, mimeMessage);
+                } catch (Exception ex) {
+                    if (pooled.transport.isConnected()) {
+                        // the connection is fine, the server rejected this message
+                        failedMessages.put(original, ex);
+                        continue;
+                    }
+                    // The server dropped the connection while it was idle,
+                    // reconnect once and retry before counting the message as failed
+                    closeQuietly(pooled);
+                    try {
+                        pooled = new PooledTransport(connectTransport());
+                        send(pooled, mimeMessage);
+                    } catch (Exception retryEx) {
+                        reusable = false;
+                        failedMessages.put(original, retryEx);
+                    }
+                }
+            }
+        } finally {
+            release(pooled, reusable);
+        }
+
+        if (!failedMessages.isEmpty()) {
+            throw new MailSendException(failedMessages);
+        }
+    }
+
+    private void prepare(MimeMessage mimeMessage) throws MessagingException {
+        if (mimeMessage.getSentDate() == null) {
+            mimeMessage.setSentDate(new Date());
+        }
+        String messageId = mimeMessage.getMessageID();
+        mimeMessage.saveChanges();
+        if (messageId != null) {
+            // Preserve explicitly specified message id...
+            mimeMessage.setHeader(HEADER_MESSAGE_ID, messageId);
+        }
+    }
+
+    private void send(PooledTransport pooled, MimeMessage mimeMessage) throws MessagingException {
+        Address[] addresses = mimeMessage.getAllRecipients();
+        pooled.transport.sendMessage(mimeMessage, (addresses != null ? addresses : new Address[0]));
+    }
+
+    private PooledTransport borrow(MimeMessage[] mimeMessages, @Nullable Object[] originalMessages) {
+        try {
+            if (!permits.tryAcquire(poolProperties.getBorrowTimeoutMs(), TimeUnit.MILLISECONDS)) {
+                throw new MailSendException("No SMTP connection available after " + poolProperties.getBorrowTimeoutMs() + "ms");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new MailSendException("Interrupted while waiting for an SMTP connection", ex);
+        }
+
+        try {
+            PooledTransport pooled;
+            while ((pooled = idle.pollFirst()) != null) {
+                long idleFor = System.currentTimeMillis() - pooled.lastUsedAt;
+                if (idleFor > poolProperties.getMaxIdleMs()) {
+                    closeQuietly(pooled);
+                    continue;
+                }
+                // isConnected() sends a NOOP on SMTP transports, only pay for it after some idle time
+                if (idleFor > poolProperties.getValidateAfterIdleMs() && !pooled.transport.isConnected()) {
+                    closeQuietly(pooled);
+                    continue;
+                }
+                return pooled;
+            }
+            return new PooledTransport(connectTransport());
+        } catch (AuthenticationFailedException ex) {
+            permits.release();
+            throw new MailAuthenticationException(ex);
+        } catch (Exception ex) {
+            permits.release();
+            Map<Object, Exception> failedMessages = new LinkedHashMap<>();
+            for (int i = 0; i < mimeMessages.length; i++) {
+                failedMessages.put(originalMessages != null ? originalMessages[i] : mimeMessages[i], ex);
+            }
+            throw new MailSendException("Mail server connection failed", ex, failedMessages);
+        }
+    }
+
+    private void release(PooledTransport pooled, boolean reusable) {
+        try {
+            if (reusable && !closed) {
+                pooled.lastUsedAt = System.currentTimeMillis();
+                // LIFO keeps the most recently used connections warm and lets the others expire
+                idle.offerFirst(pooled);
+            } else {
+                closeQuietly(pooled);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void closeQuietly(PooledTransport pooled) {
+        try {
+            pooled.transport.close();
+        } catch (Exception ex) {
+            log.debug("Error closing SMTP connection", ex);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        closed = true;
+        PooledTransport pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            closeQuietly(pooled);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package kaiquebt.dev.auth.config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "kaiquebt.dev.auth.rate-limit")
+public class RateLimitProperties {
+    private boolean enabled = false;
+    // counters per row of the sketch, rounded up to a power of two
+    private int width = 65_536;
+    private int depth = 4;
+    private List<Rule> rules = new ArrayList<>(List.of(
+        new Rule("/login", 10, 60),
+        new Rule("/resend-email", 3, 60),
+        new Rule("/recover-account/send-email", 3, 60)
+    ));
+
+    public static class Rule {
+        // relative to kaiquebt.dev.auth.base-path
+        private String path;
+        private int limit;
+        private long windowSeconds = 60;
+
+        public Rule() {}
+
+        public Rule(String path, int limit, long windowSeconds) {
+            this.path = path;
+            this.limit = limit;
+            this.windowSeconds = windowSeconds;
+        }
+
+        public String getPath() { return path; }
+        public void setPath(String path) { this.path = path; }
+
+        public int getLimit() { return limit; }
+        public void setLimit(int limit) { this.limit = limit; }
+
+        public long getWindowSeconds() { return windowSeconds; }
+        public void setWindowSeconds(long windowSeconds) { this.windowSeconds = windowSeconds; }
+    }
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public int getWidth() { return width; }
+    public void setWidth(int width) { this.width = width; }
+
+    public int getDepth() { return depth; }
+    public void setDepth(int depth) { this.depth = depth; }
+
+    public List<Rule> getRules() { return rules; }
+    public void setRules(List<Rule> rules) { this.rules = rules; }
+}
@@ -0,0 +1,25 @@
+package kaiquebt.dev.auth.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "kaiquebt.dev.auth.refresh-token")
+public class RefreshTokenProperties {
+    private boolean enabled = false;
+    private long expirationSeconds = 30L * 24 * 60 * 60;
+    private long cacheMaxSize = 100_000;
+    private long cacheExpireAfterWriteSeconds = 300;
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public long getExpirationSeconds() { return expirationSeconds; }
+    public void setExpirationSeconds(long expirationSeconds) { this.expirationSeconds = expirationSeconds; }
+
+    public long getCacheMaxSize() { return cacheMaxSize; }
+    public void setCacheMaxSize(long cacheMaxSize) { this.cacheMaxSize = cacheMaxSize; }
+
+    public long getCacheExpireAfterWriteSeconds() { return cacheExpireAfterWriteSeconds; }
+    public void setCacheExpireAfterWriteSeconds(long cacheExpireAfterWriteSeconds) { this.cacheExpireAfterWriteSeconds = cacheExpireAfterWriteSeconds; }
+}
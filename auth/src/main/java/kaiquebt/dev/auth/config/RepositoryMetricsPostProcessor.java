@@ -0,0 +1,53 @@
+package kaiquebt.dev.auth.config;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.stereotype.Component;
+
+import kaiquebt.dev.auth.repository.BaseUserRepository;
+import kaiquebt.dev.auth.service.AuthMetrics;
+
+/**
+ * Adds a timing advice to the user repository, so every query made by the auth services
+ * shows up as the repository.<method> stage without wrapping each call site
+ */
+@Component
+@ConditionalOnProperty(prefix = "kaiquebt.dev.auth.metrics", name = "enabled", havingValue = "true")
+public class RepositoryMetricsPostProcessor implements BeanPostProcessor {
+    private final ObjectProvider<AuthMetrics> authMetrics;
+
+    public RepositoryMetricsPostProcessor(ObjectProvider<AuthMetrics> authMetrics) {
+        this.authMetrics = authMetrics;
+    }
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+            factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor((proxy, information) -> {
+                if (BaseUserRepository.class.isAssignableFrom(information.getRepositoryInterface())) {
+                    proxy.addAdvice(timingAdvice());
+                }
+            }));
+        }
+        return bean;
+    }
+
+    private MethodInterceptor timingAdvice() {
+        return invocation -> {
+            AuthMetrics metrics = authMetrics.getObject();
+            String stage = "repository." + invocation.getMethod().getName();
+            long start = System.nanoTime();
+            try {
+                Object result = invocation.proceed();
+                metrics.record(stage, AuthMetrics.SUCCESS, "none", System.nanoTime() - start);
+                return result;
+            } catch (Throwable e) {
+                metrics.record(stage, AuthMetrics.ERROR, e.getClass().getSimpleName(), System.nanoTime() - start);
+                throw e;
+            }
+        };
+    }
+}
@@ -0,0 +1,53 @@
+package kaiquebt.dev.auth.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "kaiquebt.dev.auth.session-log.retention")
+public class SessionLogRetentionProperties {
+
+    public static enum Partitioning {
+        // rows are deleted in chunks
+        NONE,
+        // the table is range partitioned by month on created_at, expired months are dropped
+        POSTGRES_MONTHLY;
+    }
+
+    private boolean enabled = false;
+    private int retentionDays = 90;
+    private long intervalMs = 3_600_000;
+    // rows per DELETE, each chunk is its own transaction
+    private int chunkSize = 5000;
+    // pause between chunks so replicas and vacuum keep up with the deletes
+    private long pauseMs = 100;
+    // a run stops after this long, what is left is done on the next one
+    private long timeBudgetMs = 60_000;
+    private Partitioning partitioning = Partitioning.NONE;
+    // months created in advance when partitioning is on
+    private int partitionsAhead = 3;
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public int getRetentionDays() { return retentionDays; }
+    public void setRetentionDays(int retentionDays) { this.retentionDays = retentionDays; }
+
+    public long getIntervalMs() { return intervalMs; }
+    public void setIntervalMs(long intervalMs) { this.intervalMs = intervalMs; }
+
+    public int getChunkSize() { return chunkSize; }
+    public void setChunkSize(int chunkSize) { this.chunkSize = chunkSize; }
+
+    public long getPauseMs() { return pauseMs; }
+    public void setPauseMs(long pauseMs) { this.pauseMs = pauseMs; }
+
+    public long getTimeBudgetMs() { return timeBudgetMs; }
+    public void setTimeBudgetMs(long timeBudgetMs) { this.timeBudgetMs = timeBudgetMs; }
+
+    public Partitioning getPartitioning() { return partitioning; }
+    public void setPartitioning(Partitioning partitioning) { this.partitioning = partitioning; }
+
+    public int getPartitionsAhead() { return partitionsAhead; }
+    public void setPartitionsAhead(int partitionsAhead) { this.partitionsAhead = partitionsAhead; }
+}
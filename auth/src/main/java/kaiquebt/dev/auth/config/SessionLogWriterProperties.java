@@ -0,0 +1,47 @@
+package kaiquebt.dev.auth.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "kaiquebt.dev.auth.session-log.async")
+public class SessionLogWriterProperties {
+
+    public static enum OverflowPolicy {
+        // insert on the request thread, as if the writer was disabled
+        CALLER_RUNS,
+        // discard the log right away
+        DROP,
+        // wait up to block-timeout-ms for room in the queue, then discard
+        BLOCK;
+    }
+
+    private boolean enabled = false;
+    private int queueCapacity = 10_000;
+    private int batchSize = 500;
+    private long flushIntervalMs = 1000;
+    private OverflowPolicy overflowPolicy = OverflowPolicy.CALLER_RUNS;
+    private long blockTimeoutMs = 100;
+    private long shutdownTimeoutMs = 10_000;
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public int getQueueCapacity() { return queueCapacity; }
+    public void setQueueCapacity(int queueCapacity) { this.queueCapacity = queueCapacity; }
+
+    public int getBatchSize() { return batchSize; }
+    public void setBatchSize(int batchSize) { this.batchSize = batchSize; }
+
+    public long getFlushIntervalMs() { return flushIntervalMs; }
+    public void setFlushIntervalMs(long flushIntervalMs) { this.flushIntervalMs = flushIntervalMs; }
+
+    public OverflowPolicy getOverflowPolicy() { return overflowPolicy; }
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy) { this.overflowPolicy = overflowPolicy; }
+
+    public long getBlockTimeoutMs() { return blockTimeoutMs; }
+    public void setBlockTimeoutMs(long blockTimeoutMs) { this.blockTimeoutMs = blockTimeoutMs; }
+
+    public long getShutdownTimeoutMs() { return shutdownTimeoutMs; }
+    public void setShutdownTimeoutMs(long shutdownTimeoutMs) { this.shutdownTimeoutMs = shutdownTimeoutMs; }
+}
@@ -0,0 +1,38 @@
+package kaiquebt.dev.auth.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "kaiquebt.dev.auth.revocation")
+public class TokenRevocationProperties {
+    private boolean enabled = false;
+    private long pollIntervalMs = 1000;
+    // rows committed late or by instances with a skewed clock are still picked up
+    private long lookbackMs = 10_000;
+    private int batchSize = 1000;
+    private int expectedRevocations = 100_000;
+    private double falsePositiveRate = 0.01;
+    private long purgeIntervalMs = 600_000;
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public long getPollIntervalMs() { return pollIntervalMs; }
+    public void setPollIntervalMs(long pollIntervalMs) { this.pollIntervalMs = pollIntervalMs; }
+
+    public long getLookbackMs() { return lookbackMs; }
+    public void setLookbackMs(long lookbackMs) { this.lookbackMs = lookbackMs; }
+
+    public int getBatchSize() { return batchSize; }
+    public void setBatchSize(int batchSize) { this.batchSize = batchSize; }
+
+    public int getExpectedRevocations() { return expectedRevocations; }
+    public void setExpectedRevocations(int expectedRevocations) { this.expectedRevocations = expectedRevocations; }
+
+    public double getFalsePositiveRate() { return falsePositiveRate; }
+    public void setFalsePositiveRate(double falsePositiveRate) { this.falsePositiveRate = falsePositiveRate; }
+
+    public long getPurgeIntervalMs() { return purgeIntervalMs; }
+    public void setPurgeIntervalMs(long purgeIntervalMs) { this.purgeIntervalMs = purgeIntervalMs; }
+}
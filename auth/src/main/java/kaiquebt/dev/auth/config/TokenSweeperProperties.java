@@ -0,0 +1,32 @@
+package kaiquebt.dev.auth.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "kaiquebt.dev.auth.token-sweeper")
+public class TokenSweeperProperties {
+    private boolean enabled = false;
+    private long intervalMs = 3_600_000;
+    // rows cleared per UPDATE, each one is its own short transaction
+    private int chunkSize = 1000;
+    // a run stops after this long, what is left is cleared on the next one
+    private long timeBudgetMs = 30_000;
+    // pause between chunks so other writers get the locks in between
+    private long pauseMs = 50;
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public long getIntervalMs() { return intervalMs; }
+    public void setIntervalMs(long intervalMs) { this.intervalMs = intervalMs; }
+
+    public int getChunkSize() { return chunkSize; }
+    public void setChunkSize(int chunkSize) { this.chunkSize = chunkSize; }
+
+    public long getTimeBudgetMs() { return timeBudgetMs; }
+    public void setTimeBudgetMs(long timeBudgetMs) { this.timeBudgetMs = timeBudgetMs; }
+
+    public long getPauseMs() { return pauseMs; }
+    public void setPauseMs(long pauseMs) { this.pauseMs = pauseMs; }
+}
@@ -0,0 +1,21 @@
+package kaiquebt.dev.auth.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "kaiquebt.dev.auth.user-cache")
+public class UserDetailsCacheProperties {
+    private boolean enabled = false;
+    private long maxSize = 10_000;
+    private long expireAfterWriteSeconds = 60;
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public long getMaxSize() { return maxSize; }
+    public void setMaxSize(long maxSize) { this.maxSize = maxSize; }
+
+    public long getExpireAfterWriteSeconds() { return expireAfterWriteSeconds; }
+    public void setExpireAfterWriteSeconds(long expireAfterWriteSeconds) { this.expireAfterWriteSeconds = expireAfterWriteSeconds; }
+}
@@ -10,4 +10,6 @@ import lombok.NoArgsConstructor;
 public class JwtAuthResponse {
     private String accessToken;
     private String performerToken;
+    // only set when kaiquebt.dev.auth.refresh-token.enabled is true
+    private String refreshToken;
 }
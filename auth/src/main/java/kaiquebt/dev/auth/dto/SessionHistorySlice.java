@@ -0,0 +1,16 @@
+package kaiquebt.dev.auth.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SessionHistorySlice {
+    private List<SessionHistoryDto> items;
+    // null when there are no more logs, otherwise pass it back to get the next slice
+    private String nextCursor;
+}
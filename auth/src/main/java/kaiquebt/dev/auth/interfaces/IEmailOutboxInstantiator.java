@@ -0,0 +1,7 @@
+package kaiquebt.dev.auth.interfaces;
+
+import kaiquebt.dev.auth.model.BaseEmailOutboxMessage;
+
+public interface IEmailOutboxInstantiator<O extends BaseEmailOutboxMessage> {
+    O instantiate();
+}
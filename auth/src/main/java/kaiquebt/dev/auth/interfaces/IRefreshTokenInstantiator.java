@@ -0,0 +1,8 @@
+package kaiquebt.dev.auth.interfaces;
+
+import kaiquebt.dev.auth.model.BaseRefreshToken;
+import kaiquebt.dev.auth.model.BaseUser;
+
+public interface IRefreshTokenInstantiator<T extends BaseUser, R extends BaseRefreshToken<T>> {
+    R instantiate(T user);
+}
@@ -0,0 +1,7 @@
+package kaiquebt.dev.auth.interfaces;
+
+import kaiquebt.dev.auth.model.BaseSigningKey;
+
+public interface ISigningKeyInstantiator<K extends BaseSigningKey> {
+    K instantiate();
+}
@@ -0,0 +1,7 @@
+package kaiquebt.dev.auth.interfaces;
+
+import kaiquebt.dev.auth.model.BaseTokenRevocation;
+
+public interface ITokenRevocationInstantiator<R extends BaseTokenRevocation> {
+    R instantiate();
+}
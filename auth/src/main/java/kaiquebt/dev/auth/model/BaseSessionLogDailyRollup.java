@@ -0,0 +1,41 @@
+package kaiquebt.dev.auth.model;
+
+import java.time.LocalDate;
+import jakarta.persistence.Column;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.MappedSuperclass;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.SuperBuilder;
+
+/**
+ * Number of session logs of a user on one day, per origin. Written by the session log
+ * retention job before the raw logs of that day are deleted, never updated afterwards
+ */
+@MappedSuperclass
+@Data
+@SuperBuilder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BaseSessionLogDailyRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "log_date", nullable = false)
+    private LocalDate logDate;
+
+    // not a foreign key, rollups outlive the logs and may outlive the user
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "session_origin", nullable = false)
+    private String sessionOrigin;
+
+    @Column(name = "login_count", nullable = false)
+    private Long loginCount;
+}
@@ -48,10 +48,15 @@ public class BaseUser {
     @Column(name = "role")
     private Set<RoleType> roles;
 
+    // copied into the "gen" claim, raising it revokes every token issued before
+    @Builder.Default
+    @Column(name = "token_generation", nullable = false, columnDefinition = "INTEGER DEFAULT 0")
+    private Integer tokenGeneration = 0;
+
     @Builder.Default
     @Embedded
     @AttributeOverrides({
-        @AttributeOverride(name = "token", column = @Column(name = "email_confirmation_token")),
+        @AttributeOverride(name = "token", column = @Column(name = "email_confirmation_token", length = 64, unique = true)),
         @AttributeOverride(name = "tokenExpiresAt", column = @Column(name = "email_confirmation_token_expires_at")),
         @AttributeOverride(name = "lastTokenCreatedAt", column = @Column(name = "last_email_confirmation_token_created_at"))
     })
@@ -60,7 +65,7 @@ public class BaseUser {
     @Builder.Default
     @Embedded
     @AttributeOverrides({
-        @AttributeOverride(name = "token", column = @Column(name = "password_recover_token")),
+        @AttributeOverride(name = "token", column = @Column(name = "password_recover_token", length = 64, unique = true)),
         @AttributeOverride(name = "tokenExpiresAt", column = @Column(name = "password_recover_token_expires_at")),
         @AttributeOverride(name = "lastTokenCreatedAt", column = @Column(name = "last_password_recover_token_created_at"))
     })
@@ -0,0 +1,5 @@
+package kaiquebt.dev.auth.model;
+
+public enum EmailOutboxStatus {
+    PENDING, SENDING, SENT, DEAD;
+}
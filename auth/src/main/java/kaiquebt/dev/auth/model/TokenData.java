@@ -1,25 +1,31 @@
 package kaiquebt.dev.auth.model;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.HexFormat;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Embeddable;
 import jakarta.persistence.MappedSuperclass;
-import lombok.AllArgsConstructor;
+import jakarta.persistence.Transient;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 @Embeddable
 @Data
 @NoArgsConstructor
-@AllArgsConstructor
 @MappedSuperclass
 public abstract class TokenData {
     private static final Duration DEFAULT_TOKEN_EXPIRATION = Duration.ofMinutes(10);
     private static final Duration DEFAULT_TOKEN_COOLDOWN = Duration.ofMinutes(10);
 
-    @Column(name = "token")
+    // sha-256 of the token sent by email, the plain token is never stored
+    @Column(name = "token", length = 64)
     private String token;
     
     @Column(name = "token_expires_at")
@@ -28,6 +34,30 @@ public abstract class TokenData {
     @Column(name = "last_token_created_at")
     private LocalDateTime lastTokenCreatedAt;
 
+    // only set on the instance that generated the token, used to build the email
+    @Transient
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private String plainToken;
+
+    protected TokenData(String token, LocalDateTime tokenExpiresAt, LocalDateTime lastTokenCreatedAt) {
+        this.token = token;
+        this.tokenExpiresAt = tokenExpiresAt;
+        this.lastTokenCreatedAt = lastTokenCreatedAt;
+    }
+
+    public static String digest(String token) {
+        if (token == null) {
+            return null;
+        }
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 não disponível", e);
+        }
+    }
+
     public boolean isExpired() {
         return this.tokenExpiresAt == null || this.tokenExpiresAt.isBefore(LocalDateTime.now());
     }
@@ -54,28 +84,36 @@ public abstract class TokenData {
         if (this.tokenExpiresAt.isBefore(LocalDateTime.now())) {
             return false;
         }
-        return this.token.equals(token);
+        String candidate = digest(token);
+        return candidate != null && MessageDigest.isEqual(
+            this.token.getBytes(StandardCharsets.UTF_8),
+            candidate.getBytes(StandardCharsets.UTF_8)
+        );
     }
 
     public void attachNewToken(String newToken) {
-        this.token = newToken;
+        this.plainToken = newToken;
+        this.token = digest(newToken);
         this.tokenExpiresAt = LocalDateTime.now().plus(DEFAULT_TOKEN_EXPIRATION);
         this.lastTokenCreatedAt = LocalDateTime.now();
     }
 
     public void markAsConfirmed() {
         this.token = null;
+        this.plainToken = null;
         this.tokenExpiresAt = null;
     }
 
 
     public void clear() {
         this.token = null;
+        this.plainToken = null;
         this.tokenExpiresAt = null;
     }
     
     public void markAsExpired() {
         this.token = null;
+        this.plainToken = null;
         this.tokenExpiresAt = null;
     }
 }
@@ -0,0 +1,96 @@
+package kaiquebt.dev.auth.repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.NoRepositoryBean;
+import org.springframework.data.repository.query.Param;
+
+import kaiquebt.dev.auth.model.BaseEmailOutboxMessage;
+import kaiquebt.dev.auth.model.EmailOutboxStatus;
+
+@NoRepositoryBean
+public interface BaseEmailOutboxRepository<O extends BaseEmailOutboxMessage> extends JpaRepository<O, Long> {
+
+    @Query("""
+            SELECT o.id
+            from #{#entityName} o
+            where o.status in :statuses
+            and o.nextAttemptAt <= :now
+            order by o.nextAttemptAt
+            """)
+    List<Long> findDueIds(
+            @Param("statuses") Collection<EmailOutboxStatus> statuses,
+            @Param("now") LocalDateTime now,
+            Limit limit);
+
+    /**
+     * Moves a due message to claimedStatus until leaseUntil, returns 0 when another
+     * worker (or another instance) claimed it first
+     */
+    @Modifying
+    @Query("""
+            UPDATE #{#entityName} o
+            set o.status = :claimedStatus,
+                o.nextAttemptAt = :leaseUntil
+            where o.id = :id
+            and o.status in :statuses
+            and o.nextAttemptAt <= :now
+            """)
+    int claim(
+            @Param("id") Long id,
+            @Param("statuses") Collection<EmailOutboxStatus> statuses,
+            @Param("claimedStatus") EmailOutboxStatus claimedStatus,
+            @Param("now") LocalDateTime now,
+            @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    /**
+     * Marks a claimed message as sent, returns 0 when the lease expired and another
+     * worker claimed the message since
+     */
+    @Modifying
+    @Query("""
+            UPDATE #{#entityName} o
+            set o.status = :sentStatus,
+                o.attempts = o.attempts + 1,
+                o.sentAt = :now,
+                o.body = null,
+                o.lastError = null
+            where o.id = :id
+            and o.status = :claimedStatus
+            and o.nextAttemptAt = :leaseUntil
+            """)
+    int markSent(
+            @Param("id") Long id,
+            @Param("claimedStatus") EmailOutboxStatus claimedStatus,
+            @Param("leaseUntil") LocalDateTime leaseUntil,
+            @Param("sentStatus") EmailOutboxStatus sentStatus,
+            @Param("now") LocalDateTime now);
+
+    /**
+     * Records a failed attempt of a claimed message, same lease check as markSent
+     */
+    @Modifying
+    @Query("""
+            UPDATE #{#entityName} o
+            set o.status = :status,
+                o.attempts = o.attempts + 1,
+                o.nextAttemptAt = :nextAttemptAt,
+                o.lastError = :lastError
+            where o.id = :id
+            and o.status = :claimedStatus
+            and o.nextAttemptAt = :leaseUntil
+            """)
+    int markFailed(
+            @Param("id") Long id,
+            @Param("claimedStatus") EmailOutboxStatus claimedStatus,
+            @Param("leaseUntil") LocalDateTime leaseUntil,
+            @Param("status") EmailOutboxStatus status,
+            @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+            @Param("lastError") String lastError);
+}
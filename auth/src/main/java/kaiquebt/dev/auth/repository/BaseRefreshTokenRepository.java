@@ -0,0 +1,51 @@
+package kaiquebt.dev.auth.repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.NoRepositoryBean;
+import org.springframework.data.repository.query.Param;
+
+import kaiquebt.dev.auth.model.BaseRefreshToken;
+
+@NoRepositoryBean
+public interface BaseRefreshTokenRepository<R extends BaseRefreshToken<?>> extends JpaRepository<R, Long> {
+
+    Optional<R> findByTokenHash(String tokenHash);
+
+    /**
+     * Marks the token as used, returns 0 when it was already used, revoked or expired,
+     * including by a concurrent request or another instance
+     */
+    @Modifying
+    @Query("""
+            UPDATE #{#entityName} r
+            set r.usedAt = :now
+            where r.id = :id
+            and r.usedAt is null
+            and r.revokedAt is null
+            and r.expiresAt > :now
+            """)
+    int markUsed(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("""
+            UPDATE #{#entityName} r
+            set r.revokedAt = :now
+            where r.familyId = :familyId
+            and r.revokedAt is null
+            """)
+    int revokeFamily(@Param("familyId") String familyId, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("""
+            UPDATE #{#entityName} r
+            set r.revokedAt = :now
+            where r.user.id = :userId
+            and r.revokedAt is null
+            """)
+    int revokeAllForUser(@Param("userId") Long userId, @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,31 @@
+package kaiquebt.dev.auth.repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.NoRepositoryBean;
+import org.springframework.data.repository.query.Param;
+
+import kaiquebt.dev.auth.model.BaseSessionLogDailyRollup;
+
+@NoRepositoryBean
+public interface BaseSessionLogDailyRollupRepository<R extends BaseSessionLogDailyRollup> extends JpaRepository<R, Long> {
+
+    /**
+     * Rollups of the user between the two days, inclusive, oldest first
+     */
+    @Query("""
+            SELECT r
+            from #{#entityName} r
+            where r.userId = :userId
+            and r.logDate >= :startDate
+            and r.logDate <= :endDate
+            order by r.logDate, r.sessionOrigin
+            """)
+    List<R> findByUserIdBetween(
+            @Param("userId") Long userId,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate);
+}
@@ -0,0 +1,16 @@
+package kaiquebt.dev.auth.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.NoRepositoryBean;
+
+import kaiquebt.dev.auth.model.BaseSigningKey;
+
+@NoRepositoryBean
+public interface BaseSigningKeyRepository<K extends BaseSigningKey> extends JpaRepository<K, Long> {
+
+    @Query("SELECT k from #{#entityName} k order by k.activatesAt, k.id")
+    List<K> findAllOrderByActivatesAt();
+}
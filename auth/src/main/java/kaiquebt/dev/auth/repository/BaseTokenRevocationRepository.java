@@ -0,0 +1,35 @@
+package kaiquebt.dev.auth.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.NoRepositoryBean;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import kaiquebt.dev.auth.model.BaseTokenRevocation;
+
+@NoRepositoryBean
+public interface BaseTokenRevocationRepository<R extends BaseTokenRevocation> extends JpaRepository<R, Long> {
+
+    @Query("""
+            SELECT r
+            from #{#entityName} r
+            where r.createdAt >= :since
+            and r.expiresAt > :now
+            order by r.createdAt
+            """)
+    List<R> findActiveSince(
+            @Param("since") LocalDateTime since,
+            @Param("now") LocalDateTime now,
+            Limit limit);
+
+    @Transactional
+    @Modifying
+    @Query("delete from #{#entityName} r where r.expiresAt <= :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
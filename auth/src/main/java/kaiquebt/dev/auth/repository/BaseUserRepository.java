@@ -2,8 +2,16 @@ package kaiquebt.dev.auth.repository;
 
 import kaiquebt.dev.auth.model.BaseUser;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 public interface BaseUserRepository <T extends BaseUser> extends JpaRepository<T, Long> {
     Optional<T> findByUsername(String username);
@@ -16,5 +24,95 @@ public interface BaseUserRepository <T extends BaseUser> extends JpaRepository<T
 
     Optional<T> findByUsernameOrEmail(String username, String email);
 
-    Optional<T> findByEmailConfirmationToken(String token);
+    /**
+     * Users whose username or email is equal to any of the two values, used by signup to
+     * check both columns in a single query
+     */
+    @Query("""
+            SELECT u.username as username, u.email as email
+            from #{#entityName} u
+            where u.username in (:username, :email)
+            or u.email in (:username, :email)
+            """)
+    List<IIdentityConflict> findIdentityConflicts(
+            @Param("username") String username,
+            @Param("email") String email);
+
+    /**
+     * Users whose username or email is any of the values, the set-based version of
+     * findIdentityConflicts used by bulk signup
+     */
+    @Query("""
+            SELECT u.username as username, u.email as email
+            from #{#entityName} u
+            where u.username in :values
+            or u.email in :values
+            """)
+    List<IIdentityConflict> findIdentityConflictsIn(@Param("values") Collection<String> values);
+
+    /**
+     * Replaces the hash only if it was not changed since it was read, returns the updated rows
+     */
+    @Transactional
+    @Modifying
+    @Query("update #{#entityName} u set u.password = :newHash where u.id = :id and u.password = :oldHash")
+    int updatePasswordHash(
+            @Param("id") Long id,
+            @Param("oldHash") String oldHash,
+            @Param("newHash") String newHash);
+
+    public static interface IIdentityConflict {
+        String getUsername();
+        String getEmail();
+    }
+
+    /**
+     * Receives the digest of the token, see TokenData.digest
+     */
+    Optional<T> findByEmailConfirmationToken(String tokenDigest);
+
+    /**
+     * Receives the digest of the token, see TokenData.digest
+     */
+    Optional<T> findByPasswordRecoveryToken(String tokenDigest);
+
+    /**
+     * Ids after afterId of users whose email confirmation token expired before now, in id
+     * order, used by the token sweeper to clear them in chunks without reading the
+     * cleared rows again
+     */
+    @Query("""
+            select u.id from #{#entityName} u
+            where u.id > :afterId and u.emailConfirmation.tokenExpiresAt < :now
+            order by u.id
+            """)
+    List<Long> findExpiredEmailConfirmationIds(@Param("now") LocalDateTime now, @Param("afterId") Long afterId, Limit limit);
+
+    /**
+     * Expiration is checked again, a token issued since the ids were read is kept
+     */
+    @Transactional
+    @Modifying
+    @Query("""
+            update #{#entityName} u
+            set u.emailConfirmation.token = null, u.emailConfirmation.tokenExpiresAt = null
+            where u.id in :ids and u.emailConfirmation.tokenExpiresAt < :now
+            """)
+    int clearExpiredEmailConfirmationTokens(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    @Query("""
+            select u.id from #{#entityName} u
+            where u.id > :afterId and u.passwordRecovery.tokenExpiresAt < :now
+            order by u.id
+            """)
+    List<Long> findExpiredPasswordRecoveryIds(@Param("now") LocalDateTime now, @Param("afterId") Long afterId, Limit limit);
+
+    @Transactional
+    @Modifying
+    @Query("""
+            update #{#entityName} u
+            set u.passwordRecovery.token = null, u.passwordRecovery.tokenExpiresAt = null
+            where u.id in :ids and u.passwordRecovery.tokenExpiresAt < :now
+            """)
+    int clearExpiredPasswordRecoveryTokens(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
 }
@@ -3,13 +3,27 @@ package kaiquebt.dev.auth.repository;
 import kaiquebt.dev.auth.dto.SessionHistoryDto.ISessionHistoryDto;
 import kaiquebt.dev.auth.model.BaseUser;
 import kaiquebt.dev.auth.model.BaseUserSessionLog;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.NoRepositoryBean;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import jakarta.persistence.QueryHint;
+
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
 
 @NoRepositoryBean
 public interface BaseUserSessionLogRepository<L extends BaseUserSessionLog<?>> extends JpaRepository<L, Long> {
@@ -34,6 +48,36 @@ public interface BaseUserSessionLogRepository<L extends BaseUserSessionLog<?>> e
             @Param("startDate") LocalDateTime startDate,
             @Param("endDate") LocalDateTime endDate);
 
+    /**
+     * Keyset variant of findAllProjected, returns the logs that come after
+     * (cursorCreatedAt, cursorId) in (createdAt desc, id desc) order. The plain range
+     * predicates let an index on (user_id, created_at, id) serve the whole query,
+     * so every page costs the same no matter how deep it is. All parameters are required.
+     */
+    @Query("""
+            SELECT
+                log.id as id,
+                log.sessionOrigin as origin,
+                log.ipAddress as ipAddress,
+                log.userAgent as userAgent,
+                user.username as performedBy,
+                log.createdAt as createdAt
+            from #{#entityName} log
+            LEFT JOIN log.performedBy user
+            where log.user.id = :userId
+            and log.createdAt >= :startDate
+            and log.createdAt <= :endDate
+            and (log.createdAt, log.id) < (:cursorCreatedAt, :cursorId)
+            order by log.createdAt desc, log.id desc
+            """)
+    List<ISessionHistoryDto> findProjectedAfter(
+            @Param("userId") Long userId,
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate,
+            @Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+            @Param("cursorId") Long cursorId,
+            Limit limit);
+
     // /**
     // * Find all session logs for a specific user ID
     // */
@@ -100,4 +144,47 @@ public interface BaseUserSessionLogRepository<L extends BaseUserSessionLog<?>> e
     // """)
     // List<T> findSuspiciousActivityByUserId(@Param("userId") Long userId,
     // @Param("timeThreshold") LocalDateTime timeThreshold);
-}
\ No newline at end of file
+
+    /**
+     * Forward only stream over every log of the user in the range, newest first. Must be
+     * consumed inside a transaction and closed afterwards. All parameters are required.
+     */
+    @QueryHints({
+        @QueryHint(name = HINT_FETCH_SIZE, value = "1000"),
+        @QueryHint(name = HINT_READ_ONLY, value = "true"),
+        @QueryHint(name = HINT_CACHEABLE, value = "false")
+    })
+    @Query("""
+            SELECT
+                log.id as id,
+                log.sessionOrigin as origin,
+                log.ipAddress as ipAddress,
+                log.userAgent as userAgent,
+                user.username as performedBy,
+                log.createdAt as createdAt
+            from #{#entityName} log
+            LEFT JOIN log.performedBy user
+            where log.user.id = :userId
+            and log.createdAt >= :startDate
+            and log.createdAt <= :endDate
+            order by log.createdAt desc, log.id desc
+            """)
+    Stream<ISessionHistoryDto> streamProjected(
+            @Param("userId") Long userId,
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate);
+
+    /**
+     * Oldest log in [from, to), used by the retention job to find the next day to roll up
+     */
+    @Query("select min(log.createdAt) from #{#entityName} log where log.createdAt >= :from and log.createdAt < :to")
+    LocalDateTime findOldestCreatedAt(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Query("select log.id from #{#entityName} log where log.createdAt < :before")
+    List<Long> findIdsCreatedBefore(@Param("before") LocalDateTime before, Limit limit);
+
+    @Transactional
+    @Modifying
+    @Query("delete from #{#entityName} log where log.id in :ids")
+    int deleteByIds(@Param("ids") Collection<Long> ids);
+}
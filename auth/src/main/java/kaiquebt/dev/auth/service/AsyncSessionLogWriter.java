@@ -0,0 +1,259 @@
+package kaiquebt.dev.auth.service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import kaiquebt.dev.auth.config.AuthThreads;
+import kaiquebt.dev.auth.config.SessionLogWriterProperties;
+import kaiquebt.dev.auth.model.BaseUser;
+import kaiquebt.dev.auth.model.BaseUserSessionLog;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Write-behind pipeline for session logs. The request thread only captures the
+ * values of the log, a single flusher thread writes them with multi-row inserts
+ * once batch-size logs are queued or flush-interval-ms has passed.
+ *
+ * Only the columns of BaseUserSessionLog are written, columns added by the
+ * application entity must be nullable or have a database default.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "kaiquebt.dev.auth.session-log.async", name = "enabled", havingValue = "true")
+public class AsyncSessionLogWriter {
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+    private final SessionLogWriterProperties properties;
+    private final AuthThreads authThreads;
+
+    private final Map<Class<?>, InsertTarget> insertTargets = new ConcurrentHashMap<>();
+
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    private BlockingQueue<SessionLogEvent> queue;
+    private Thread flusher;
+    private volatile boolean running;
+
+    private static class SessionLogEvent {
+        private final Class<?> logClass;
+        private final Long userId;
+        private final String sessionOrigin;
+        private final String ipAddress;
+        private final String userAgent;
+        private final Long performedById;
+        private final LocalDateTime createdAt;
+
+        SessionLogEvent(BaseUserSessionLog<?> log) {
+            this.logClass = log.getClass();
+            this.userId = idOf(log.getUser());
+            this.sessionOrigin = log.getSessionOrigin();
+            this.ipAddress = log.getIpAddress();
+            this.userAgent = log.getUserAgent();
+            this.performedById = idOf(log.getPerformedBy());
+            this.createdAt = log.getCreatedAt() != null ? log.getCreatedAt() : LocalDateTime.now();
+        }
+
+        private static Long idOf(BaseUser user) {
+            return user != null ? user.getId() : null;
+        }
+    }
+
+    private static class InsertTarget {
+        private final String table;
+        private final String columns;
+
+        InsertTarget(String table, String columns) {
+            this.table = table;
+            this.columns = columns;
+        }
+    }
+
+    @PostConstruct
+    void start() {
+        this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+        this.running = true;
+        this.flusher = authThreads.threadFactory("auth-session-log-writer").newThread(this::run);
+        this.flusher.start();
+    }
+
+    /**
+     * Must be called on the request thread, after ip address and user agent were set on the log
+     */
+    public void submit(BaseUserSessionLog<?> log) {
+        SessionLogEvent event = new SessionLogEvent(log);
+
+        if (!running) {
+            write(List.of(event));
+            return;
+        }
+        if (queue.offer(event)) {
+            return;
+        }
+
+        switch (properties.getOverflowPolicy()) {
+            case CALLER_RUNS -> write(List.of(event));
+            case DROP -> dropped.incrementAndGet();
+            case BLOCK -> {
+                try {
+                    if (!queue.offer(event, properties.getBlockTimeoutMs(), TimeUnit.MILLISECONDS)) {
+                        dropped.incrementAndGet();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    dropped.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    public long getWrittenCount() {
+        return written.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    private void run() {
+        List<SessionLogEvent> batch = new ArrayList<>(properties.getBatchSize());
+        while (running || !queue.isEmpty()) {
+            try {
+                SessionLogEvent first = queue.poll(properties.getFlushIntervalMs(), TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(properties.getFlushIntervalMs());
+                while (batch.size() < properties.getBatchSize() && running) {
+                    queue.drainTo(batch, properties.getBatchSize() - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= properties.getBatchSize() || remaining <= 0) {
+                        break;
+                    }
+                    SessionLogEvent next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                queue.drainTo(batch, properties.getBatchSize() - batch.size());
+
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Erro ao gravar {} logs de sessão", batch.size(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<SessionLogEvent> events) {
+        Map<Class<?>, List<SessionLogEvent>> byClass = new LinkedHashMap<>();
+        for (SessionLogEvent event : events) {
+            byClass.computeIfAbsent(event.logClass, k -> new ArrayList<>()).add(event);
+        }
+
+        byClass.forEach((logClass, classEvents) -> {
+            InsertTarget target = insertTargets.computeIfAbsent(logClass, this::resolveTarget);
+            try {
+                jdbcTemplate.update(buildInsert(target, classEvents.size()), toArgs(classEvents));
+                written.addAndGet(classEvents.size());
+            } catch (Exception e) {
+                failed.addAndGet(classEvents.size());
+                log.error("Erro ao gravar {} logs de sessão em {}", classEvents.size(), target.table, e);
+            }
+        });
+    }
+
+    private static String buildInsert(InsertTarget target, int rows) {
+        StringBuilder sql = new StringBuilder(64 + target.columns.length() + rows * 16)
+            .append("insert into ").append(target.table)
+            .append(" (").append(target.columns).append(") values ");
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                sql.append(',');
+            }
+            sql.append("(?,?,?,?,?,?)");
+        }
+        return sql.toString();
+    }
+
+    private static Object[] toArgs(List<SessionLogEvent> events) {
+        Object[] args = new Object[events.size() * 6];
+        int i = 0;
+        for (SessionLogEvent event : events) {
+            args[i++] = event.userId;
+            args[i++] = event.sessionOrigin;
+            args[i++] = event.ipAddress;
+            args[i++] = event.userAgent;
+            args[i++] = event.performedById;
+            args[i++] = Timestamp.valueOf(event.createdAt);
+        }
+        return args;
+    }
+
+    /**
+     * Table and column names come from the Hibernate mapping of the application
+     * entity, so naming strategies and @Table/@Column overrides are respected
+     */
+    private InsertTarget resolveTarget(Class<?> logClass) {
+        AbstractEntityPersister persister = (AbstractEntityPersister) entityManagerFactory
+            .unwrap(SessionFactoryImplementor.class)
+            .getMappingMetamodel()
+            .getEntityDescriptor(logClass);
+
+        String columns = String.join(",",
+            persister.getPropertyColumnNames("user")[0],
+            persister.getPropertyColumnNames("sessionOrigin")[0],
+            persister.getPropertyColumnNames("ipAddress")[0],
+            persister.getPropertyColumnNames("userAgent")[0],
+            persister.getPropertyColumnNames("performedBy")[0],
+            persister.getPropertyColumnNames("createdAt")[0]
+        );
+        return new InsertTarget(persister.getIdentifierTableName(), columns);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        // the flusher notices within flush-interval-ms and drains what is left in the queue
+        running = false;
+        flusher.join(properties.getShutdownTimeoutMs());
+        if (!queue.isEmpty()) {
+            log.warn("{} logs de sessão não foram gravados antes do desligamento", queue.size());
+        }
+    }
+}
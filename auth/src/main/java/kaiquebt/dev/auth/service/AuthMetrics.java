@@ -0,0 +1,115 @@
+package kaiquebt.dev.auth.service;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import kaiquebt.dev.auth.config.AuthMetricsProperties;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Times each stage of the auth pipeline into the auth.stage timer, tagged by stage, outcome
+ * and exception. A plain call when kaiquebt.dev.auth.metrics.enabled is false or the
+ * application has no MeterRegistry (spring-boot-starter-actuator provides one)
+ */
+@Slf4j
+@Component
+public class AuthMetrics {
+    public static final String TIMER = "auth.stage";
+    public static final String SUCCESS = "success";
+    public static final String ERROR = "error";
+
+    private final boolean enabled;
+    private final boolean histograms;
+    private final ObjectProvider<MeterRegistry> registryProvider;
+    // resolved on first use, a registry declared in the security config would be a cycle otherwise
+    private volatile Optional<MeterRegistry> registry;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public AuthMetrics(AuthMetricsProperties properties, ObjectProvider<MeterRegistry> registryProvider) {
+        this.enabled = properties.isEnabled();
+        this.histograms = properties.isHistograms();
+        this.registryProvider = registryProvider;
+    }
+
+    public <T> T record(String stage, Supplier<T> call) {
+        if (!enabled) {
+            return call.get();
+        }
+        long start = System.nanoTime();
+        try {
+            T result = call.get();
+            record(stage, SUCCESS, "none", System.nanoTime() - start);
+            return result;
+        } catch (RuntimeException e) {
+            record(stage, ERROR, e.getClass().getSimpleName(), System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    public void run(String stage, Runnable call) {
+        record(stage, () -> {
+            call.run();
+            return null;
+        });
+    }
+
+    /**
+     * For stages that can't be wrapped in a call, outcome should have few distinct values
+     */
+    public void record(String stage, String outcome, long nanos) {
+        record(stage, outcome, "none", nanos);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isHistograms() {
+        return histograms;
+    }
+
+    /**
+     * The application registry when metrics are enabled, for components that register their own meters
+     */
+    public Optional<MeterRegistry> getRegistry() {
+        return enabled ? registry() : Optional.empty();
+    }
+
+    public void record(String stage, String outcome, String exception, long nanos) {
+        if (!enabled) {
+            return;
+        }
+        Optional<MeterRegistry> current = registry();
+        if (current.isEmpty()) {
+            return;
+        }
+        timers.computeIfAbsent(stage + '|' + outcome + '|' + exception, key -> Timer.builder(TIMER)
+                .description("Duration of each stage of the auth pipeline")
+                .tag("stage", stage)
+                .tag("outcome", outcome)
+                .tag("exception", exception)
+                .publishPercentileHistogram(histograms)
+                .register(current.get()))
+            .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Optional<MeterRegistry> registry() {
+        Optional<MeterRegistry> current = this.registry;
+        if (current == null) {
+            current = Optional.ofNullable(registryProvider.getIfAvailable());
+            if (current.isEmpty()) {
+                log.warn("kaiquebt.dev.auth.metrics.enabled is true but there is no MeterRegistry bean, metrics are not recorded");
+            }
+            this.registry = current;
+        }
+        return current;
+    }
+}
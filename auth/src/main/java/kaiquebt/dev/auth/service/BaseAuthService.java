@@ -4,24 +4,35 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.jsonwebtoken.Claims;
 
 import kaiquebt.dev.auth.ResendEmailResponse;
+import kaiquebt.dev.auth.dto.JwtAuthResponse;
 import kaiquebt.dev.auth.dto.LoginDto;
 import kaiquebt.dev.auth.interfaces.IUserSessionLogInstantiator;
 import kaiquebt.dev.auth.model.BaseUser;
 import kaiquebt.dev.auth.model.BaseUser.RoleType;
 import kaiquebt.dev.auth.model.BaseUserSessionLog;
+import kaiquebt.dev.auth.model.TokenData;
 import kaiquebt.dev.auth.repository.BaseUserRepository;
+import kaiquebt.dev.auth.repository.BaseUserRepository.IIdentityConflict;
 import kaiquebt.dev.auth.service.JwtTokenProvider.GeneratedTokenResponse;
 import lombok.RequiredArgsConstructor;
 
@@ -36,6 +47,15 @@ public class BaseAuthService<T extends BaseUser, U extends BaseUserSessionLog<T>
     private final IUserSessionLogInstantiator<T, U> sessionInstantiator;
     private final EmailService<T> emailService;
     private final IPasswordValidator passwordValidator;
+    private final CustomUserDetailsService<T> userDetailsService;
+    private final TransactionTemplate transactionTemplate;
+    private final AuthMetrics authMetrics;
+    // empty unless kaiquebt.dev.auth.login-limiter.enabled is true
+    private final ObjectProvider<LoginLimiter> loginLimiter;
+    // empty unless kaiquebt.dev.auth.refresh-token.enabled is true
+    private final ObjectProvider<RefreshTokenService<T, ?>> refreshTokenService;
+    // empty unless kaiquebt.dev.auth.revocation.enabled is true
+    private final ObjectProvider<TokenRevocationService<?>> tokenRevocationService;
 
     public interface SignupHook<T extends BaseUser> {
         default void customValidation(T user, SignupRequest<T> request) throws IllegalArgumentException {}
@@ -59,26 +79,11 @@ public class BaseAuthService<T extends BaseUser, U extends BaseUserSessionLog<T>
                 hook.customValidation(user, request);
             }
             
-            if (user.getUsername() == null || user.getUsername().isEmpty()) {
-                throw new IllegalArgumentException("Username is required");
-            }
-
-            if (user.getEmail() == null || user.getEmail().isEmpty()) {
-                throw new IllegalArgumentException("Email is required");
-            }
-
-            //validates email
-            if (!user.getEmail().matches("^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+$")) {
-                throw new IllegalArgumentException("Email is invalid");
-            }
-            
-            if (baseUserRepository.existsByUsername(user.getUsername()) || baseUserRepository.existsByUsername(user.getEmail())) {
-                throw new IllegalArgumentException("Username already exists!");
-            }
+            validateIdentity(user);
             
-            // Check if email exists
-            if (baseUserRepository.existsByEmail(user.getEmail()) || baseUserRepository.existsByEmail(user.getUsername())) {
-                throw new IllegalArgumentException("Email already exists!");
+            List<IIdentityConflict> conflicts = baseUserRepository.findIdentityConflicts(user.getUsername(), user.getEmail());
+            if (!conflicts.isEmpty()) {
+                throw new IllegalArgumentException(conflictMessage(user, conflicts));
             }
                         
             // Create new user
@@ -87,13 +92,20 @@ public class BaseAuthService<T extends BaseUser, U extends BaseUserSessionLog<T>
             String token = UUID.randomUUID().toString();
             user.getEmailConfirmation().attachNewToken(token);
             
-            emailService.sendMagicLink(user);
-            
             // Hook: Before save
             if (hook != null) {
                 hook.beforeSave(user, request);
             }
-            baseUserRepository.save(user);
+            try {
+                saveAndSendEmail(user, emailService::sendMagicLink);
+            } catch (DataIntegrityViolationException e) {
+                // a concurrent signup may have taken the username or email after the check above
+                IllegalArgumentException conflict = identityConflict(user, baseUserRepository, e);
+                if (conflict != null) {
+                    throw conflict;
+                }
+                throw e;
+            }
             
             // Hook: After save
             if (hook != null) {
@@ -112,22 +124,122 @@ public class BaseAuthService<T extends BaseUser, U extends BaseUserSessionLog<T>
     }    
 
     public String login(LoginDto loginDto) {
-        Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(
-                        loginDto.getUsernameOrEmail(),
-                        loginDto.getPassword()
-                )
+        return loginWithTokens(loginDto).getAccessToken();
+    }
+
+    /**
+     * Same as login, also issues a refresh token when refresh tokens are enabled
+     */
+    public JwtAuthResponse loginWithTokens(LoginDto loginDto) {
+        UsernamePasswordAuthenticationToken credentials = new UsernamePasswordAuthenticationToken(
+                loginDto.getUsernameOrEmail(),
+                loginDto.getPassword()
         );
+        LoginLimiter limiter = loginLimiter.getIfAvailable();
+        // timed inside the limiter, the queue wait is not part of the stage
+        Supplier<Authentication> authenticate = () -> authMetrics.record(
+            "authenticate", () -> authenticationManager.authenticate(credentials));
+        Authentication authentication = limiter != null
+            ? limiter.run(authenticate)
+            : authenticate.get();
 
         SecurityContextHolder.getContext().setAuthentication(authentication);
-        T user = this.baseUserRepository.findByEmail(authentication.getName()).get();
+        T user = userFromAuthentication(authentication);
         GeneratedTokenResponse generateToken = jwtTokenProvider.generateToken(user);
         // loggin session
         userSessionLogService.registerLoginSession(
             user,
             this.sessionInstantiator.instantiate(user)
         );
-        return generateToken.token;
+
+        JwtAuthResponse response = new JwtAuthResponse();
+        response.setAccessToken(generateToken.token);
+        RefreshTokenService<T, ?> refreshTokens = refreshTokenService.getIfAvailable();
+        if (refreshTokens != null) {
+            response.setRefreshToken(refreshTokens.issue(user));
+        }
+        return response;
+    }
+
+    /**
+     * Exchanges a refresh token for a new access token and a new refresh token,
+     * the presented refresh token can't be used again
+     */
+    public JwtAuthResponse refresh(String refreshToken) {
+        RefreshTokenService<T, ?> refreshTokens = refreshTokenService.getIfAvailable();
+        if (refreshTokens == null) {
+            throw new IllegalArgumentException("Refresh token não habilitado");
+        }
+
+        RefreshTokenService.Rotation<T> rotation = refreshTokens.rotate(refreshToken);
+        T user = rotation.user();
+        GeneratedTokenResponse generateToken = jwtTokenProvider.generateToken(user);
+        userSessionLogService.registerRefreshSession(
+            user,
+            this.sessionInstantiator.instantiate(user)
+        );
+
+        JwtAuthResponse response = new JwtAuthResponse();
+        response.setAccessToken(generateToken.token);
+        response.setRefreshToken(rotation.refreshToken());
+        return response;
+    }
+
+    /**
+     * The provider already loaded the user through CustomUserDetailsService, only goes to the
+     * database again when the application plugged in a provider with another principal type
+     */
+    @SuppressWarnings("unchecked")
+    private T userFromAuthentication(Authentication authentication) {
+        if (authentication.getPrincipal() instanceof CustomUserDetails details) {
+            return (T) details.getUser();
+        }
+        return this.baseUserRepository.findByEmail(authentication.getName()).get();
+    }
+
+    /**
+     * Revokes the given access token and, when present, the family of the refresh token
+     */
+    public void logout(String accessToken, String refreshToken) {
+        TokenRevocationService<?> revocation = tokenRevocationService.getIfAvailable();
+        if (revocation == null) {
+            throw new IllegalArgumentException("Revogação de tokens não habilitada");
+        }
+
+        Claims claims = jwtTokenProvider.parseAndValidate(accessToken);
+        revocation.revoke(claims.getId(), claims.getExpiration());
+
+        RefreshTokenService<T, ?> refreshTokens = refreshTokenService.getIfAvailable();
+        if (refreshTokens != null && refreshToken != null) {
+            refreshTokens.revoke(refreshToken);
+        }
+    }
+
+    /**
+     * Revokes every access and refresh token issued to the user so far
+     */
+    public void logoutAll(Long userId) {
+        TokenRevocationService<?> revocation = tokenRevocationService.getIfAvailable();
+        if (revocation == null) {
+            throw new IllegalArgumentException("Revogação de tokens não habilitada");
+        }
+
+        T user = transactionTemplate.execute(status -> {
+            T found = this.baseUserRepository.findById(userId)
+                .orElseThrow(() -> new IllegalArgumentException("Usuário não encontrado"));
+            int generation = (found.getTokenGeneration() != null ? found.getTokenGeneration() : 0) + 1;
+            found.setTokenGeneration(generation);
+            this.baseUserRepository.save(found);
+            revocation.revokeGeneration(userId, generation);
+
+            RefreshTokenService<T, ?> refreshTokens = refreshTokenService.getIfAvailable();
+            if (refreshTokens != null) {
+                refreshTokens.revokeAll(userId);
+            }
+            return found;
+        });
+        // cached users still carry the old generation and would issue revoked tokens
+        this.userDetailsService.evict(user);
     }
 
     public ResendEmailResponse sendEmailConfirmation(String email) {
@@ -157,9 +269,7 @@ public class BaseAuthService<T extends BaseUser, U extends BaseUserSessionLog<T>
 
         user.getEmailConfirmation().attachNewToken(token);
 
-        emailService.sendMagicLink(user);
-        
-        this.baseUserRepository.save(user);
+        saveAndSendEmail(user, emailService::sendMagicLink);
 
         return ResendEmailResponse.builder()
             .after(0L)
@@ -169,7 +279,11 @@ public class BaseAuthService<T extends BaseUser, U extends BaseUserSessionLog<T>
     }
 
     public String confirmEmail(String token) {
-        Optional<T> userOpt = this.baseUserRepository.findByEmailConfirmationToken(token);
+        if (token == null || token.isBlank()) {
+            throw new IllegalArgumentException("Token inválido");
+        }
+
+        Optional<T> userOpt = this.baseUserRepository.findByEmailConfirmationToken(TokenData.digest(token));
         
         if (userOpt.isEmpty()) {
             throw new IllegalArgumentException("Token inválido");
@@ -179,6 +293,7 @@ public class BaseAuthService<T extends BaseUser, U extends BaseUserSessionLog<T>
         if (user.getEmailConfirmation().getConfirmed()) {
             user.getEmailConfirmation().clear();
             this.baseUserRepository.save(user);
+            this.userDetailsService.evict(user);
             throw new IllegalArgumentException("Email já foi confirmado");
         }
         
@@ -188,6 +303,7 @@ public class BaseAuthService<T extends BaseUser, U extends BaseUserSessionLog<T>
         
         user.getEmailConfirmation().markAsConfirmed();
         this.baseUserRepository.save(user);
+        this.userDetailsService.evict(user);
 
         return jwtTokenProvider.generateToken(user).token;
     }
@@ -212,6 +328,29 @@ public class BaseAuthService<T extends BaseUser, U extends BaseUserSessionLog<T>
 
         user.setPassword(passwordEncoder.encode(password));
         this.baseUserRepository.save(user);
+        this.userDetailsService.evict(user);
+    }
+
+    public T updateRoles(Long id, Set<RoleType> roles) {
+        Optional<T> userOpt = this.baseUserRepository.findById(id);
+
+        if (userOpt.isEmpty()) {
+            throw new IllegalArgumentException("Usuário não encontrado");
+        }
+
+        T user = userOpt.get();
+        user.setRoles(new HashSet<>(roles));
+        this.baseUserRepository.save(user);
+        this.userDetailsService.evict(user);
+        return user;
+    }
+
+    /**
+     * Must be called by the application after it changes a user outside of this
+     * service (roles, password, confirmation...) while the user cache is enabled
+     */
+    public void evictCachedUser(T user) {
+        this.userDetailsService.evict(user);
     }
 
     public String sendRecoverEmail(String email) {
@@ -247,9 +386,61 @@ public class BaseAuthService<T extends BaseUser, U extends BaseUserSessionLog<T>
         String token = UUID.randomUUID().toString();
                 
         user.getPasswordRecovery().attachNewToken(token);
-        emailService.sendRecoverEmail(user);
-        
-        this.baseUserRepository.save(user);
+        saveAndSendEmail(user, emailService::sendRecoverEmail);
         return null;
     }
+
+    static void validateIdentity(BaseUser user) {
+        if (user.getUsername() == null || user.getUsername().isEmpty()) {
+            throw new IllegalArgumentException("Username is required");
+        }
+
+        if (user.getEmail() == null || user.getEmail().isEmpty()) {
+            throw new IllegalArgumentException("Email is required");
+        }
+
+        //validates email
+        if (!user.getEmail().matches("^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+$")) {
+            throw new IllegalArgumentException("Email is invalid");
+        }
+    }
+
+    static String conflictMessage(BaseUser user, List<IIdentityConflict> conflicts) {
+        boolean usernameTaken = conflicts.stream().anyMatch(c ->
+            user.getUsername().equalsIgnoreCase(c.getUsername()) || user.getEmail().equalsIgnoreCase(c.getUsername())
+        );
+        return usernameTaken ? "Username already exists!" : "Email already exists!";
+    }
+
+    /**
+     * Called after an insert failed with a constraint violation. Returns the same error as the
+     * check before the insert when the username or email is now taken, null when the violation
+     * is about something else (not null, length, foreign keys, application constraints)
+     */
+    static IllegalArgumentException identityConflict(BaseUser user, BaseUserRepository<?> repository, Exception cause) {
+        List<IIdentityConflict> conflicts = repository.findIdentityConflicts(user.getUsername(), user.getEmail());
+        if (conflicts.isEmpty()) {
+            return null;
+        }
+        return new IllegalArgumentException(conflictMessage(user, conflicts), cause);
+    }
+
+    /**
+     * With the outbox enabled the user row and the queued email are committed in the
+     * same transaction. Otherwise the email is sent over SMTP before saving, outside of
+     * any transaction, so a failed send still leaves the user untouched
+     */
+    private void saveAndSendEmail(T user, Consumer<T> sendEmail) {
+        if (emailService.isOutboxEnabled()) {
+            transactionTemplate.executeWithoutResult(status -> {
+                // flush so unique violations surface here, before the email is queued
+                this.baseUserRepository.saveAndFlush(user);
+                sendEmail.accept(user);
+            });
+            return;
+        }
+
+        sendEmail.accept(user);
+        this.baseUserRepository.save(user);
+    }
 }
@@ -0,0 +1,465 @@
+package kaiquebt.dev.auth.service;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.metamodel.mapping.AttributeMapping;
+import org.hibernate.metamodel.mapping.PluralAttributeMapping;
+import org.hibernate.persister.collection.AbstractCollectionPersister;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import kaiquebt.dev.auth.config.AuthThreads;
+import kaiquebt.dev.auth.config.BulkSignupProperties;
+import kaiquebt.dev.auth.model.BaseUser;
+import kaiquebt.dev.auth.repository.BaseUserRepository;
+import kaiquebt.dev.auth.repository.BaseUserRepository.IIdentityConflict;
+import kaiquebt.dev.auth.service.BaseAuthService.SignupHook;
+import kaiquebt.dev.auth.service.BaseAuthService.SignupRequest;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Signup for imports of many users at once. Rows are split in chunks, and each chunk costs
+ * one duplicate check query, one batched insert of the users, one of their roles and the
+ * confirmation emails, queued in the same transaction when the outbox is enabled. Chunks
+ * run in parallel and the SignupHook of every row is called as in BaseAuthService.signup
+ */
+@Slf4j
+@Service
+public class BulkSignupService<T extends BaseUser> {
+    private final BaseUserRepository<T> userRepository;
+    private final EmailService<T> emailService;
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+    private final TransactionTemplate transactionTemplate;
+    private final BulkSignupProperties properties;
+    private final AuthThreads authThreads;
+    private final AuthMetrics authMetrics;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final Map<Class<?>, InsertTarget> insertTargets = new ConcurrentHashMap<>();
+
+    public BulkSignupService(
+        BaseUserRepository<T> userRepository,
+        EmailService<T> emailService,
+        JdbcTemplate jdbcTemplate,
+        EntityManagerFactory entityManagerFactory,
+        TransactionTemplate transactionTemplate,
+        BulkSignupProperties properties,
+        AuthThreads authThreads,
+        AuthMetrics authMetrics
+    ) {
+        this.userRepository = userRepository;
+        this.emailService = emailService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManagerFactory = entityManagerFactory;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = properties;
+        this.authThreads = authThreads;
+        this.authMetrics = authMetrics;
+    }
+
+    public static enum Status {
+        CREATED,
+        // the user was created but the confirmation email could not be sent, see resend-confirmation
+        EMAIL_FAILED,
+        // validation or duplicate username/email, nothing was written
+        REJECTED,
+        FAILED;
+    }
+
+    /**
+     * Outcome of one row, index is its position in the input
+     */
+    public record Result<T extends BaseUser>(int index, T user, Status status, String error) {
+        public boolean isCreated() {
+            return status == Status.CREATED || status == Status.EMAIL_FAILED;
+        }
+    }
+
+    public record Summary(int total, int created, int emailFailed, int rejected, int failed, long elapsedMs) {}
+
+    // table and columns of the user entity, resolved once from the Hibernate mapping
+    private record InsertTarget(
+        String userSql,
+        String idColumn,
+        List<AttributeMapping> attributes,
+        int columnCount,
+        String rolesSql
+    ) {}
+
+    private static class Row<T extends BaseUser> {
+        final int index;
+        final SignupRequest<T> request;
+        final T user;
+        Status status;
+        Exception error;
+
+        Row(int index, SignupRequest<T> request) {
+            this.index = index;
+            this.request = request;
+            this.user = request.getUser();
+        }
+
+        void reject(Exception e) {
+            status = Status.REJECTED;
+            error = e;
+        }
+    }
+
+    /**
+     * Signs up every request. Results are handed to the consumer on the calling thread as
+     * each chunk finishes, so they arrive while the import is still running and in chunk
+     * completion order. Requests are read lazily, at most parallelism chunks are in memory
+     */
+    public Summary signupAll(Iterable<? extends SignupRequest<T>> requests, Consumer<Result<T>> results) {
+        long start = System.currentTimeMillis();
+        int[] counts = new int[Status.values().length];
+        int total = 0;
+
+        int parallelism = Math.max(1, properties.getParallelism());
+        int chunkSize = Math.max(1, properties.getChunkSize());
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, authThreads.threadFactory("auth-bulk-signup"));
+        ExecutorCompletionService<List<Row<T>>> completion = new ExecutorCompletionService<>(executor);
+        // lower case usernames and emails already taken by an earlier row of this import
+        Set<String> seen = new HashSet<>();
+
+        try {
+            Iterator<? extends SignupRequest<T>> iterator = requests.iterator();
+            int running = 0;
+            while (iterator.hasNext() || running > 0) {
+                while (iterator.hasNext() && running < parallelism) {
+                    List<Row<T>> chunk = new ArrayList<>(chunkSize);
+                    while (iterator.hasNext() && chunk.size() < chunkSize) {
+                        Row<T> row = new Row<>(total++, iterator.next());
+                        rejectRepeated(row, seen);
+                        chunk.add(row);
+                    }
+                    completion.submit(() -> authMetrics.record("bulk-signup.chunk", () -> processChunk(chunk)));
+                    running++;
+                }
+
+                List<Row<T>> done = completion.take().get();
+                running--;
+                for (Row<T> row : done) {
+                    counts[row.status.ordinal()]++;
+                    results.accept(new Result<>(row.index, row.user, row.status,
+                        row.error != null ? row.error.getMessage() : null));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Importação interrompida", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Erro na importação de usuários", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Summary summary = new Summary(total,
+            counts[Status.CREATED.ordinal()], counts[Status.EMAIL_FAILED.ordinal()],
+            counts[Status.REJECTED.ordinal()], counts[Status.FAILED.ordinal()],
+            System.currentTimeMillis() - start);
+        log.info("Bulk signup: {}", summary);
+        return summary;
+    }
+
+    private static <T extends BaseUser> void rejectRepeated(Row<T> row, Set<String> seen) {
+        String username = lower(row.user.getUsername());
+        String email = lower(row.user.getEmail());
+        if ((username != null && seen.contains(username)) || (email != null && seen.contains(email))) {
+            boolean usernameTaken = username != null && seen.contains(username);
+            row.reject(new IllegalArgumentException(usernameTaken ? "Username already exists!" : "Email already exists!"));
+            return;
+        }
+        if (username != null) {
+            seen.add(username);
+        }
+        if (email != null) {
+            seen.add(email);
+        }
+    }
+
+    private List<Row<T>> processChunk(List<Row<T>> chunk) {
+        List<Row<T>> accepted = new ArrayList<>(chunk.size());
+        for (Row<T> row : chunk) {
+            if (row.status != null) {
+                continue;
+            }
+            try {
+                SignupHook<T> hook = row.request.getHook();
+                if (hook != null) {
+                    hook.customValidation(row.user, row.request);
+                }
+                BaseAuthService.validateIdentity(row.user);
+                accepted.add(row);
+            } catch (Exception e) {
+                row.reject(e);
+            }
+        }
+
+        rejectExisting(accepted);
+        accepted.removeIf(row -> row.status != null);
+
+        for (Row<T> row : accepted) {
+            try {
+                row.user.getEmailConfirmation().attachNewToken(UUID.randomUUID().toString());
+                SignupHook<T> hook = row.request.getHook();
+                if (hook != null) {
+                    hook.beforeSave(row.user, row.request);
+                }
+            } catch (Exception e) {
+                row.reject(e);
+            }
+        }
+        accepted.removeIf(row -> row.status != null);
+
+        if (!accepted.isEmpty()) {
+            try {
+                saveAll(accepted);
+            } catch (DataIntegrityViolationException e) {
+                // a concurrent signup took one of the names after the check, find it row by row
+                for (Row<T> row : accepted) {
+                    row.user.setId(null);
+                    try {
+                        saveAll(List.of(row));
+                    } catch (DataIntegrityViolationException rowError) {
+                        IllegalArgumentException conflict = BaseAuthService.identityConflict(row.user, userRepository, rowError);
+                        if (conflict != null) {
+                            row.reject(conflict);
+                        } else {
+                            row.status = Status.FAILED;
+                            row.error = rowError;
+                        }
+                    } catch (Exception rowError) {
+                        row.status = Status.FAILED;
+                        row.error = rowError;
+                    }
+                }
+            } catch (Exception e) {
+                log.error("Erro ao gravar {} usuários", accepted.size(), e);
+                for (Row<T> row : accepted) {
+                    row.status = Status.FAILED;
+                    row.error = e;
+                }
+            }
+        }
+
+        for (Row<T> row : chunk) {
+            if (row.status == null && !emailService.isOutboxEnabled()) {
+                sendMagicLink(row);
+            }
+            if (row.status == null) {
+                row.status = Status.CREATED;
+            }
+            callHook(row);
+        }
+        return chunk;
+    }
+
+    /**
+     * One query for the usernames and emails of the whole chunk
+     */
+    private void rejectExisting(List<Row<T>> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        Set<String> values = new HashSet<>(rows.size() * 2);
+        for (Row<T> row : rows) {
+            values.add(row.user.getUsername());
+            values.add(row.user.getEmail());
+        }
+
+        List<IIdentityConflict> conflicts = userRepository.findIdentityConflictsIn(values);
+        if (conflicts.isEmpty()) {
+            return;
+        }
+        Set<String> taken = new HashSet<>(conflicts.size() * 2);
+        for (IIdentityConflict conflict : conflicts) {
+            taken.add(lower(conflict.getUsername()));
+            taken.add(lower(conflict.getEmail()));
+        }
+        for (Row<T> row : rows) {
+            if (taken.contains(lower(row.user.getUsername())) || taken.contains(lower(row.user.getEmail()))) {
+                List<IIdentityConflict> own = conflicts.stream()
+                    .filter(c -> matches(row.user, c))
+                    .toList();
+                row.reject(new IllegalArgumentException(BaseAuthService.conflictMessage(row.user, own)));
+            }
+        }
+    }
+
+    private static boolean matches(BaseUser user, IIdentityConflict conflict) {
+        return user.getUsername().equalsIgnoreCase(conflict.getUsername())
+            || user.getUsername().equalsIgnoreCase(conflict.getEmail())
+            || user.getEmail().equalsIgnoreCase(conflict.getUsername())
+            || user.getEmail().equalsIgnoreCase(conflict.getEmail());
+    }
+
+    private void saveAll(List<Row<T>> rows) {
+        transactionTemplate.executeWithoutResult(status -> {
+            insertUsers(rows);
+            if (emailService.isOutboxEnabled()) {
+                // queued in this transaction, so the emails exist only if the users do
+                for (Row<T> row : rows) {
+                    emailService.sendMagicLink(row.user);
+                }
+            }
+        });
+    }
+
+    private void insertUsers(List<Row<T>> rows) {
+        InsertTarget target = insertTargets.computeIfAbsent(rows.get(0).user.getClass(), this::resolveTarget);
+        SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+
+        List<Object[]> values = new ArrayList<>(rows.size());
+        for (Row<T> row : rows) {
+            values.add(columnValues(target, row.user, session));
+        }
+
+        GeneratedKeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+            connection -> connection.prepareStatement(target.userSql(), new String[] { target.idColumn() }),
+            new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    Object[] columns = values.get(i);
+                    for (int c = 0; c < columns.length; c++) {
+                        ps.setObject(c + 1, columns[c]);
+                    }
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return values.size();
+                }
+            },
+            keys
+        );
+
+        List<Map<String, Object>> generated = keys.getKeyList();
+        if (generated.size() != rows.size()) {
+            throw new IllegalStateException("O banco retornou " + generated.size() + " ids para " + rows.size() + " usuários");
+        }
+        List<Object[]> roles = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            T user = rows.get(i).user;
+            user.setId(((Number) generated.get(i).values().iterator().next()).longValue());
+            if (user.getRoles() != null) {
+                for (BaseUser.RoleType role : user.getRoles()) {
+                    roles.add(new Object[] { user.getId(), role.name() });
+                }
+            }
+        }
+        if (!roles.isEmpty()) {
+            jdbcTemplate.batchUpdate(target.rolesSql(), roles);
+        }
+    }
+
+    private static Object[] columnValues(InsertTarget target, BaseUser user, SharedSessionContractImplementor session) {
+        Object[] values = new Object[target.columnCount()];
+        int[] column = { 0 };
+        for (AttributeMapping attribute : target.attributes()) {
+            Object value = attribute.getPropertyAccess().getGetter().get(user);
+            attribute.breakDownJdbcValues(value, (index, jdbcValue, selectable) -> {
+                if (selectable.isInsertable() && !selectable.isFormula()) {
+                    values[column[0]++] = jdbcValue;
+                }
+            }, session);
+        }
+        return values;
+    }
+
+    /**
+     * Columns come from the Hibernate mapping of the application entity, so fields the
+     * application added to its user are inserted too, and naming strategies are respected
+     */
+    private InsertTarget resolveTarget(Class<?> userClass) {
+        AbstractEntityPersister persister = (AbstractEntityPersister) entityManagerFactory
+            .unwrap(SessionFactoryImplementor.class)
+            .getMappingMetamodel()
+            .getEntityDescriptor(userClass);
+        if (persister.getTableSpan() > 1) {
+            throw new IllegalStateException("Cadastro em lote não suporta usuários mapeados em mais de uma tabela");
+        }
+
+        List<AttributeMapping> attributes = new ArrayList<>();
+        List<String> columns = new ArrayList<>();
+        String[] rolesSql = { null };
+        persister.forEachAttributeMapping(attribute -> {
+            if (attribute instanceof PluralAttributeMapping plural) {
+                if ("roles".equals(attribute.getAttributeName())) {
+                    AbstractCollectionPersister roles = (AbstractCollectionPersister) plural.getCollectionDescriptor();
+                    rolesSql[0] = "insert into " + roles.getTableName()
+                        + " (" + roles.getKeyColumnNames()[0] + "," + roles.getElementColumnNames()[0] + ") values (?,?)";
+                }
+                return;
+            }
+            attribute.forEachSelectable((index, selectable) -> {
+                if (selectable.isInsertable() && !selectable.isFormula()) {
+                    columns.add(selectable.getSelectionExpression());
+                }
+            });
+            attributes.add(attribute);
+        });
+
+        String userSql = "insert into " + persister.getIdentifierTableName()
+            + " (" + String.join(",", columns) + ") values (" + String.join(",", columns.stream().map(c -> "?").toList()) + ")";
+        return new InsertTarget(userSql, persister.getIdentifierColumnNames()[0], List.copyOf(attributes), columns.size(), rolesSql[0]);
+    }
+
+    private void sendMagicLink(Row<T> row) {
+        try {
+            emailService.sendMagicLink(row.user);
+        } catch (Exception e) {
+            row.status = Status.EMAIL_FAILED;
+            row.error = e;
+        }
+    }
+
+    private static <T extends BaseUser> void callHook(Row<T> row) {
+        SignupHook<T> hook = row.request.getHook();
+        if (hook == null) {
+            return;
+        }
+        try {
+            if (row.status == Status.CREATED || row.status == Status.EMAIL_FAILED) {
+                hook.afterSave(row.user, row.request);
+            } else {
+                hook.onError(row.error, row.user, row.request);
+            }
+        } catch (Exception e) {
+            log.warn("SignupHook falhou para a linha {}: {}", row.index, e.getMessage());
+        }
+    }
+
+    private static String lower(String value) {
+        return value != null ? value.toLowerCase(Locale.ROOT) : null;
+    }
+}
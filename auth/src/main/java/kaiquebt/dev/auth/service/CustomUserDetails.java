@@ -1,6 +1,6 @@
 package kaiquebt.dev.auth.service;
 
-import lombok.AllArgsConstructor;
+import lombok.AccessLevel;
 import lombok.Getter;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
@@ -10,14 +10,41 @@ import kaiquebt.dev.auth.model.BaseUser;
 
 import java.util.Collection;
 import java.util.Set;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Getter
-@AllArgsConstructor
 public class CustomUserDetails implements UserDetails {
     
-    private final BaseUser user;
+    private final Long userId;
+    private final String email;
     private final Collection<? extends GrantedAuthority> authorities;
+
+    @Getter(AccessLevel.NONE)
+    private final Supplier<? extends BaseUser> userLoader;
+
+    @Getter(AccessLevel.NONE)
+    private volatile BaseUser user;
+
+    public CustomUserDetails(BaseUser user, Collection<? extends GrantedAuthority> authorities) {
+        this.userId = user.getId();
+        this.email = user.getEmail();
+        this.authorities = authorities;
+        this.userLoader = null;
+        this.user = user;
+    }
+
+    private CustomUserDetails(
+        Long userId,
+        String email,
+        Collection<? extends GrantedAuthority> authorities,
+        Supplier<? extends BaseUser> userLoader
+    ) {
+        this.userId = userId;
+        this.email = email;
+        this.authorities = authorities;
+        this.userLoader = userLoader;
+    }
     
     public static CustomUserDetails fromUser(BaseUser user) {
         Set<GrantedAuthority> authorities = user.getRoles().stream()
@@ -26,6 +53,32 @@ public class CustomUserDetails implements UserDetails {
                 
         return new CustomUserDetails(user, authorities);
     }
+
+    /**
+     * Builds a principal only from verified token claims, the user entity is
+     * loaded through userLoader the first time getUser() is called
+     */
+    public static CustomUserDetails fromClaims(
+        Long userId,
+        String email,
+        Collection<String> roles,
+        Supplier<? extends BaseUser> userLoader
+    ) {
+        Set<GrantedAuthority> authorities = roles.stream()
+                .map(SimpleGrantedAuthority::new)
+                .collect(Collectors.toSet());
+
+        return new CustomUserDetails(userId, email, authorities, userLoader);
+    }
+
+    public BaseUser getUser() {
+        BaseUser loaded = this.user;
+        if (loaded == null) {
+            loaded = userLoader.get();
+            this.user = loaded;
+        }
+        return loaded;
+    }
     
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
@@ -34,12 +87,13 @@ public class CustomUserDetails implements UserDetails {
 
     @Override
     public String getPassword() {
-        return user.getPassword();
+        // principals built from claims never carry the password hash
+        return user != null ? user.getPassword() : null;
     }
 
     @Override
     public String getUsername() {
-        return user.getEmail();
+        return email;
     }
 
     @Override
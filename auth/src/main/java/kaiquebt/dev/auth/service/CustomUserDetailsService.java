@@ -1,26 +1,187 @@
 package kaiquebt.dev.auth.service;
 
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.BeanUtils;
+
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 
+import kaiquebt.dev.auth.config.PasswordHashingProperties;
+import kaiquebt.dev.auth.config.UserDetailsCacheProperties;
 import kaiquebt.dev.auth.model.BaseUser;
 import kaiquebt.dev.auth.repository.BaseUserRepository;
-import lombok.RequiredArgsConstructor;
 
 @Service
-@RequiredArgsConstructor
-public class CustomUserDetailsService<T extends BaseUser> implements UserDetailsService {
+public class CustomUserDetailsService<T extends BaseUser> implements UserDetailsService, UserDetailsPasswordService {
 
     private final BaseUserRepository<T> baseUserRepository;
 
+    // Keyed by both username and email, null when kaiquebt.dev.auth.user-cache.enabled is false
+    private final Cache<String, CustomUserDetails> cache;
+
+    // bumped by every evict, a load that overlaps one must not leave its result cached
+    private final AtomicLong evictions = new AtomicLong();
+
+    private final boolean upgradeOnLogin;
+
+    public CustomUserDetailsService(
+        BaseUserRepository<T> baseUserRepository,
+        UserDetailsCacheProperties cacheProperties,
+        PasswordHashingProperties passwordProperties
+    ) {
+        this.baseUserRepository = baseUserRepository;
+        this.upgradeOnLogin = passwordProperties.isUpgradeOnLogin();
+        this.cache = cacheProperties.isEnabled()
+            ? Caffeine.newBuilder()
+                .maximumSize(cacheProperties.getMaxSize())
+                .expireAfterWrite(Duration.ofSeconds(cacheProperties.getExpireAfterWriteSeconds()))
+                .recordStats()
+                .build()
+            : null;
+    }
+
     @Override
     public UserDetails loadUserByUsername(String usernameOrEmail) throws UsernameNotFoundException {
+        if (cache == null) {
+            return load(usernameOrEmail);
+        }
+
+        CustomUserDetails cached = cache.getIfPresent(usernameOrEmail);
+        if (cached != null) {
+            return copyOf(cached);
+        }
+
+        long version = evictions.get();
+        CustomUserDetails details = load(usernameOrEmail);
+        String username = details.getUser().getUsername();
+        String email = details.getUser().getEmail();
+        CustomUserDetails snapshot = copyOf(details);
+        cache.put(username, snapshot);
+        cache.put(email, snapshot);
+        // the row may have been read before a change whose evict found nothing to drop yet
+        if (evictions.get() != version) {
+            cache.invalidate(username);
+            cache.invalidate(email);
+        }
+        return details;
+    }
+
+    /**
+     * Called by DaoAuthenticationProvider after a successful login when the stored hash is
+     * below the current policy (older algorithm or lower cost), newPassword is already encoded
+     */
+    @Override
+    public UserDetails updatePassword(UserDetails userDetails, String newPassword) {
+        if (!upgradeOnLogin || !(userDetails instanceof CustomUserDetails details)) {
+            return userDetails;
+        }
+
+        BaseUser user = details.getUser();
+        // skipped when the password was changed after it was checked
+        int updated = baseUserRepository.updatePasswordHash(user.getId(), user.getPassword(), newPassword);
+        if (updated == 0) {
+            return userDetails;
+        }
+
+        user.setPassword(newPassword);
+        evict(user);
+        return CustomUserDetails.fromUser(user);
+    }
+
+    public T loadUserById(Long id) throws UsernameNotFoundException {
+        return baseUserRepository.findById(id)
+                .orElseThrow(() -> 
+                        new UsernameNotFoundException("User not found: " + id));
+    }
+
+    /**
+     * Drops the cached entries of the user. When called inside a transaction the
+     * entries are dropped again after commit, so a concurrent request can't cache
+     * the row as it was before the change
+     */
+    public void evict(BaseUser user) {
+        if (cache == null || user == null) {
+            return;
+        }
+        String username = user.getUsername();
+        String email = user.getEmail();
+        evictKeys(username, email);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictKeys(username, email);
+                }
+            });
+        }
+    }
+
+    public void evictAll() {
+        if (cache != null) {
+            evictions.incrementAndGet();
+            cache.invalidateAll();
+        }
+    }
+
+    /**
+     * Hit, miss and eviction counters of the user cache, empty when the cache is disabled
+     */
+    public CacheStats getCacheStats() {
+        return cache != null ? cache.stats() : CacheStats.empty();
+    }
+
+    private void evictKeys(String username, String email) {
+        evictions.incrementAndGet();
+        if (username != null) {
+            cache.invalidate(username);
+        }
+        if (email != null) {
+            cache.invalidate(email);
+        }
+    }
+
+    private CustomUserDetails load(String usernameOrEmail) {
         BaseUser user = baseUserRepository.findByUsernameOrEmail(usernameOrEmail, usernameOrEmail)
                 .orElseThrow(() -> 
                         new UsernameNotFoundException("User not found: " + usernameOrEmail));
 
         return CustomUserDetails.fromUser(user);
     }
-}
\ No newline at end of file
+
+    /**
+     * The cached entry is shared by every request, callers get their own copy of the user
+     * so changing it can't leak into other requests or into the cache
+     */
+    private static CustomUserDetails copyOf(CustomUserDetails details) {
+        BaseUser user = details.getUser();
+        BaseUser copy = BeanUtils.instantiateClass(user.getClass());
+        BeanUtils.copyProperties(user, copy);
+        copy.setRoles(user.getRoles() != null ? new HashSet<>(user.getRoles()) : null);
+        copy.setEmailConfirmation(copyOf(user.getEmailConfirmation()));
+        copy.setPasswordRecovery(copyOf(user.getPasswordRecovery()));
+        return new CustomUserDetails(copy, details.getAuthorities());
+    }
+
+    private static <E> E copyOf(E embedded) {
+        if (embedded == null) {
+            return null;
+        }
+        @SuppressWarnings("unchecked")
+        E copy = (E) BeanUtils.instantiateClass(embedded.getClass());
+        BeanUtils.copyProperties(embedded, copy);
+        return copy;
+    }
+}
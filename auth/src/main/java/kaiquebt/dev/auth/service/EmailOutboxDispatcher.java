@@ -0,0 +1,126 @@
+package kaiquebt.dev.auth.service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import kaiquebt.dev.auth.config.AuthThreads;
+import kaiquebt.dev.auth.config.EmailOutboxProperties;
+import kaiquebt.dev.auth.model.BaseEmailOutboxMessage;
+import kaiquebt.dev.auth.service.EmailOutboxService.EmailEnqueuedEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Drains the email outbox: a single poller claims due messages and hands them
+ * to a fixed pool of workers that talk to the SMTP server
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "kaiquebt.dev.auth.mail.outbox", name = "enabled", havingValue = "true")
+public class EmailOutboxDispatcher {
+    private final EmailOutboxService<? extends BaseEmailOutboxMessage> outboxService;
+    private final EmailService<?> emailService;
+    private final EmailOutboxProperties properties;
+    private final AuthThreads authThreads;
+
+    private ScheduledExecutorService poller;
+    private ExecutorService workers;
+    // One permit per worker, so claimed messages never wait in the pool queue past their lease
+    private Semaphore idleWorkers;
+    private final AtomicBoolean pollRequested = new AtomicBoolean();
+
+    @PostConstruct
+    void start() {
+        this.idleWorkers = new Semaphore(properties.getWorkers());
+        // still a fixed pool when the threads are virtual, workers is the SMTP concurrency
+        this.workers = Executors.newFixedThreadPool(properties.getWorkers(), authThreads.threadFactory("auth-outbox-worker"));
+        this.poller = Executors.newSingleThreadScheduledExecutor(authThreads.threadFactory("auth-outbox-poller"));
+        this.poller.scheduleWithFixedDelay(
+            this::poll,
+            properties.getPollIntervalMs(),
+            properties.getPollIntervalMs(),
+            TimeUnit.MILLISECONDS
+        );
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEnqueued(EmailEnqueuedEvent event) {
+        // a bulk signup commits hundreds of messages at once, one extra poll is enough for all of them
+        if (!poller.isShutdown() && pollRequested.compareAndSet(false, true)) {
+            poller.execute(() -> {
+                pollRequested.set(false);
+                poll();
+            });
+        }
+    }
+
+    void poll() {
+        try {
+            int free = idleWorkers.availablePermits();
+            if (free == 0) {
+                return;
+            }
+
+            List<Long> due = outboxService.findDue(Math.min(free, properties.getBatchSize()));
+            for (Long id : due) {
+                if (!idleWorkers.tryAcquire()) {
+                    return;
+                }
+                LocalDateTime leaseUntil = outboxService.claim(id);
+                if (leaseUntil == null) {
+                    idleWorkers.release();
+                    continue;
+                }
+                workers.execute(() -> {
+                    try {
+                        dispatch(id, leaseUntil);
+                    } finally {
+                        idleWorkers.release();
+                    }
+                });
+            }
+        } catch (Exception e) {
+            log.error("Erro ao processar a fila de emails", e);
+        }
+    }
+
+    private void dispatch(Long id, LocalDateTime leaseUntil) {
+        BaseEmailOutboxMessage message = outboxService.findById(id).orElse(null);
+        if (message == null) {
+            return;
+        }
+
+        try {
+            emailService.deliver(message.getRecipient(), message.getSubject(), message.getBody());
+            if (outboxService.markSent(id, leaseUntil)) {
+                log.info("Email {} enviado com sucesso para: {}", id, message.getRecipient());
+            }
+        } catch (Exception e) {
+            log.warn("Erro ao enviar email {} para {}: {}", id, message.getRecipient(), e.getMessage());
+            outboxService.markFailed(message, leaseUntil, e);
+        }
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        poller.shutdownNow();
+        workers.shutdown();
+        // messages still SENDING when this times out are picked up again once their lease expires
+        if (!workers.awaitTermination(30, TimeUnit.SECONDS)) {
+            workers.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package kaiquebt.dev.auth.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import kaiquebt.dev.auth.config.EmailOutboxProperties;
+import kaiquebt.dev.auth.interfaces.IEmailOutboxInstantiator;
+import kaiquebt.dev.auth.model.BaseEmailOutboxMessage;
+import kaiquebt.dev.auth.model.EmailOutboxStatus;
+import kaiquebt.dev.auth.repository.BaseEmailOutboxRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "kaiquebt.dev.auth.mail.outbox", name = "enabled", havingValue = "true")
+public class EmailOutboxService<O extends BaseEmailOutboxMessage> {
+    private static final List<EmailOutboxStatus> DISPATCHABLE = List.of(EmailOutboxStatus.PENDING, EmailOutboxStatus.SENDING);
+
+    private final BaseEmailOutboxRepository<O> outboxRepository;
+    private final IEmailOutboxInstantiator<O> outboxInstantiator;
+    private final EmailOutboxProperties properties;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Published on enqueue, the dispatcher picks it up after the surrounding transaction commits
+     */
+    public static class EmailEnqueuedEvent {
+    }
+
+    /**
+     * Joins the caller transaction when there is one, so the message is only visible
+     * to the dispatcher if the change that triggered it is committed too
+     */
+    @Transactional
+    public void enqueue(String recipient, String subject, String body) {
+        O message = outboxInstantiator.instantiate();
+        message.setRecipient(recipient);
+        message.setSubject(subject);
+        message.setBody(body);
+        message.setStatus(EmailOutboxStatus.PENDING);
+        message.setAttempts(0);
+        outboxRepository.save(message);
+        eventPublisher.publishEvent(new EmailEnqueuedEvent());
+    }
+
+    /**
+     * Messages that are pending, or whose SENDING lease expired because the
+     * worker that claimed them died, ordered by their next attempt
+     */
+    @Transactional(readOnly = true)
+    public List<Long> findDue(int limit) {
+        return outboxRepository.findDueIds(DISPATCHABLE, LocalDateTime.now(), Limit.of(limit));
+    }
+
+    /**
+     * Claims the message until its lease ends and returns that lease, null when another
+     * worker (or another instance) claimed it first. markSent and markFailed only apply
+     * while the message still holds this lease
+     */
+    @Transactional
+    public LocalDateTime claim(Long id) {
+        LocalDateTime now = LocalDateTime.now();
+        // whole seconds, so the lease reads back equal on columns with less precision
+        LocalDateTime leaseUntil = now.plus(Duration.ofMillis(properties.getLeaseMs())).truncatedTo(ChronoUnit.SECONDS);
+        int claimed = outboxRepository.claim(
+            id,
+            DISPATCHABLE,
+            EmailOutboxStatus.SENDING,
+            now,
+            leaseUntil
+        );
+        return claimed == 1 ? leaseUntil : null;
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<O> findById(Long id) {
+        return outboxRepository.findById(id);
+    }
+
+    /**
+     * Returns false when the lease was lost, the message then belongs to the worker that claimed it again
+     */
+    @Transactional
+    public boolean markSent(Long id, LocalDateTime leaseUntil) {
+        int updated = outboxRepository.markSent(
+            id,
+            EmailOutboxStatus.SENDING,
+            leaseUntil,
+            EmailOutboxStatus.SENT,
+            LocalDateTime.now()
+        );
+        if (updated == 0) {
+            log.warn("Lease do email {} expirou antes do fim do envio", id);
+        }
+        return updated == 1;
+    }
+
+    /**
+     * Schedules the next attempt of a claimed message with exponential backoff, or moves it
+     * to DEAD after max-attempts. Returns false when the lease was lost
+     */
+    @Transactional
+    public boolean markFailed(BaseEmailOutboxMessage message, LocalDateTime leaseUntil, Exception error) {
+        int attempts = message.getAttempts() + 1;
+        boolean dead = attempts >= properties.getMaxAttempts();
+        LocalDateTime now = LocalDateTime.now();
+        int updated = outboxRepository.markFailed(
+            message.getId(),
+            EmailOutboxStatus.SENDING,
+            leaseUntil,
+            dead ? EmailOutboxStatus.DEAD : EmailOutboxStatus.PENDING,
+            dead ? now : now.plus(Duration.ofMillis(backoffMs(attempts))),
+            truncate(error.getClass().getSimpleName() + ": " + error.getMessage(), 1000)
+        );
+        if (updated == 0) {
+            log.warn("Lease do email {} expirou antes do fim do envio", message.getId());
+            return false;
+        }
+        if (dead) {
+            log.error("Email {} para {} movido para DEAD após {} tentativas", message.getId(), message.getRecipient(), attempts);
+        }
+        return true;
+    }
+
+    /**
+     * Puts a DEAD message back in the queue with a fresh attempt counter
+     */
+    @Transactional
+    public boolean retry(Long id) {
+        return outboxRepository.findById(id)
+            .filter(message -> message.getStatus() == EmailOutboxStatus.DEAD)
+            .map(message -> {
+                message.setStatus(EmailOutboxStatus.PENDING);
+                message.setAttempts(0);
+                message.setNextAttemptAt(LocalDateTime.now());
+                eventPublisher.publishEvent(new EmailEnqueuedEvent());
+                return true;
+            })
+            .orElse(false);
+    }
+
+    long backoffMs(int attempts) {
+        long backoff = properties.getInitialBackoffMs() << Math.min(attempts - 1, 30);
+        if (backoff <= 0 || backoff > properties.getMaxBackoffMs()) {
+            return properties.getMaxBackoffMs();
+        }
+        return backoff;
+    }
+
+    private static String truncate(String value, int max) {
+        return value.length() > max ? value.substring(0, max) : value;
+    }
+}
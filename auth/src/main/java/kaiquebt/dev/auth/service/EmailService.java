@@ -1,31 +1,43 @@
 package kaiquebt.dev.auth.service;
 
-import org.springframework.beans.factory.annotation.Qualifier;
+import java.nio.charset.StandardCharsets;
+
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import jakarta.activation.DataHandler;
 import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
+import jakarta.mail.util.ByteArrayDataSource;
 import kaiquebt.dev.auth.config.MailSenderFactory;
 import kaiquebt.dev.auth.model.BaseUser;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 @Service
 @Slf4j
 public class EmailService<T extends BaseUser> {
+    private static final String HTML_CONTENT_TYPE = "text/html; charset=UTF-8";
+
     private final IEmailTemplateBean<T> emailTemplateBean;
     private final JavaMailSender mailSender;
+    // null unless kaiquebt.dev.auth.mail.outbox.enabled is true
+    private final EmailOutboxService<?> outboxService;
+    private final AuthMetrics authMetrics;
 
     public EmailService(
         IEmailTemplateBean emailTemplateBean,
-        MailSenderFactory mailSenderFactory
+        MailSenderFactory mailSenderFactory,
+        ObjectProvider<EmailOutboxService<?>> outboxServiceProvider,
+        AuthMetrics authMetrics
     ) {
         this.emailTemplateBean = emailTemplateBean;
         this.mailSender = mailSenderFactory.getMailSender();
+        this.outboxService = outboxServiceProvider.getIfAvailable();
+        this.authMetrics = authMetrics;
     }
 
     @Value("${kaiquebt.dev.auth.external-url}")
@@ -37,28 +49,32 @@ public class EmailService<T extends BaseUser> {
     @Value("${kaiquebt.dev.auth.base-path:/api/auth/}")
     private String apiMapping;
 
+    public boolean isOutboxEnabled() {
+        return outboxService != null;
+    }
+
     public void sendMagicLink(T user) {
+        authMetrics.run("email.magic-link", () -> doSendMagicLink(user));
+    }
+
+    private void doSendMagicLink(T user) {
+        // TODO - this should not work like this, the lib user should implement its own magic link page
+        // cause this page is just blank
+        String magicLinkUrl = UriComponentsBuilder.fromUriString(externalUrl)
+            .path(apiMapping + "confirm-email")
+            .queryParam("token", user.getEmailConfirmation().getPlainToken())
+            .build()
+            .toUriString();
+
+        byte[] html = emailTemplateBean.renderEmailConfirm(user, magicLinkUrl);
+
+        if (outboxService != null) {
+            outboxService.enqueue(user.getEmail(), emailTemplateBean.getEmailConfirmTitle(), new String(html, StandardCharsets.UTF_8));
+            return;
+        }
+
         try {
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-            
-            helper.setTo(user.getEmail());
-            helper.setFrom(fromEmail);
-            helper.setSubject(emailTemplateBean.getEmailConfirmTitle());
-            
-            // TODO - this should not work like this, the lib user should implement its own magic link page
-            // cause this page is just blank
-            String magicLinkUrl = UriComponentsBuilder.fromUriString(externalUrl)
-                .path(apiMapping + "confirm-email")
-                .queryParam("token", user.getEmailConfirmation().getToken())
-                .build()
-                .toUriString();
-
-            String html = emailTemplateBean.buildEmailConfirm(user, magicLinkUrl);
-            
-            helper.setText(html, true);
-            
-            mailSender.send(message);
+            deliver(user.getEmail(), emailTemplateBean.getEmailConfirmTitle(), html);
             log.info("Magic link enviado com sucesso para: {}", user.getEmail()); 
         } catch (MessagingException e) {
             log.error("Erro ao enviar magic link para {}: {}", user.getEmail(), e.getMessage());
@@ -67,18 +83,19 @@ public class EmailService<T extends BaseUser> {
     }
 
     public void sendRecoverEmail(T user) {
+        authMetrics.run("email.recover-account", () -> doSendRecoverEmail(user));
+    }
+
+    private void doSendRecoverEmail(T user) {
+        byte[] html = emailTemplateBean.renderRecoverAccount(user, user.getPasswordRecovery().getPlainToken());
+
+        if (outboxService != null) {
+            outboxService.enqueue(user.getEmail(), emailTemplateBean.getRecoverAccountTitle(), new String(html, StandardCharsets.UTF_8));
+            return;
+        }
+
         try {
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-            
-            helper.setTo(user.getEmail());
-            helper.setFrom(fromEmail);
-            helper.setSubject(emailTemplateBean.getRecoverAccountTitle());
-                
-            String html = emailTemplateBean.buildRecoverAccount(user, user.getPasswordRecovery().getToken());
-            helper.setText(html, true);
-            
-            mailSender.send(message);
+            deliver(user.getEmail(), emailTemplateBean.getRecoverAccountTitle(), html);
             log.info("Email de recuperação enviado com sucesso para: {}", user.getEmail()); 
         } catch (MessagingException e) {
             log.error("Erro ao enviar email de recuperação para {}: {}", user.getEmail(), e.getMessage());
@@ -86,5 +103,29 @@ public class EmailService<T extends BaseUser> {
         }
 
     }
-    
+
+    /**
+     * Sends an already rendered html email over SMTP, used directly when the
+     * outbox is disabled and by the outbox workers otherwise
+     */
+    public void deliver(String to, String subject, String html) throws MessagingException {
+        deliver(to, subject, html.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Sends the html as a single text/html part, the emails have no attachments or
+     * plain text alternative so a multipart wrapper would only add bytes
+     */
+    public void deliver(String to, String subject, byte[] html) throws MessagingException {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, false, "UTF-8");
+
+        helper.setTo(to);
+        helper.setFrom(fromEmail);
+        helper.setSubject(subject);
+        message.setDataHandler(new DataHandler(new ByteArrayDataSource(html, HTML_CONTENT_TYPE)));
+
+        mailSender.send(message);
+    }
+
 }
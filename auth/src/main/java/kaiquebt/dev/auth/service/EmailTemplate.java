@@ -0,0 +1,152 @@
+package kaiquebt.dev.auth.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An email body parsed once into static UTF-8 segments and placeholders, so rendering is
+ * copying bytes into an array of the exact size instead of running String.format over the
+ * whole html. Placeholders are {{name}}, html escaped, or {{{name}}}, written as is.
+ *
+ * <pre>
+ * EmailTemplate template = EmailTemplate.compile("&lt;p&gt;Hello, {{username}}&lt;/p&gt;", "username");
+ * byte[] html = template.render(user.getUsername());
+ * </pre>
+ */
+public final class EmailTemplate {
+    private static final String OPEN = "{{";
+    private static final String CLOSE = "}}";
+
+    private final List<String> parameters;
+    // segments[i] comes before placeholders[i], the last segment closes the template
+    private final byte[][] segments;
+    private final Placeholder[] placeholders;
+    private final int staticLength;
+
+    private record Placeholder(int parameter, boolean escape) {}
+
+    private EmailTemplate(List<String> parameters, byte[][] segments, Placeholder[] placeholders) {
+        this.parameters = parameters;
+        this.segments = segments;
+        this.placeholders = placeholders;
+        int length = 0;
+        for (byte[] segment : segments) {
+            length += segment.length;
+        }
+        this.staticLength = length;
+    }
+
+    /**
+     * Parses the template. The parameters are the placeholder names in the order render
+     * takes their values, an unknown or unclosed placeholder fails here rather than per email
+     */
+    public static EmailTemplate compile(String source, String... parameters) {
+        List<String> names = List.of(parameters);
+        List<byte[]> segments = new ArrayList<>();
+        List<Placeholder> placeholders = new ArrayList<>();
+
+        int position = 0;
+        int open;
+        while ((open = source.indexOf(OPEN, position)) >= 0) {
+            boolean raw = source.startsWith("{", open + OPEN.length());
+            int nameStart = open + OPEN.length() + (raw ? 1 : 0);
+            String close = raw ? "}" + CLOSE : CLOSE;
+            int end = source.indexOf(close, nameStart);
+            if (end < 0) {
+                throw new IllegalArgumentException("Placeholder sem fechamento na posição " + open);
+            }
+            String name = source.substring(nameStart, end).trim();
+            int parameter = names.indexOf(name);
+            if (parameter < 0) {
+                throw new IllegalArgumentException("Placeholder desconhecido: " + name);
+            }
+            segments.add(source.substring(position, open).getBytes(StandardCharsets.UTF_8));
+            placeholders.add(new Placeholder(parameter, !raw));
+            position = end + close.length();
+        }
+        segments.add(source.substring(position).getBytes(StandardCharsets.UTF_8));
+
+        return new EmailTemplate(names, segments.toArray(byte[][]::new), placeholders.toArray(Placeholder[]::new));
+    }
+
+    /**
+     * Renders the template as UTF-8, values in the order of the compile parameters. A null
+     * value renders as empty
+     */
+    public byte[] render(Object... values) {
+        if (values.length != parameters.size()) {
+            throw new IllegalArgumentException(
+                "Esperados " + parameters.size() + " valores " + parameters + ", recebidos " + values.length);
+        }
+
+        // each value is encoded once, however many times it appears
+        byte[][] escaped = new byte[values.length][];
+        byte[][] raw = new byte[values.length][];
+        byte[][] parts = new byte[placeholders.length][];
+        int length = staticLength;
+        for (int i = 0; i < placeholders.length; i++) {
+            Placeholder placeholder = placeholders[i];
+            int p = placeholder.parameter();
+            byte[][] cache = placeholder.escape() ? escaped : raw;
+            if (cache[p] == null) {
+                String value = values[p] == null ? "" : values[p].toString();
+                cache[p] = (placeholder.escape() ? escapeHtml(value) : value).getBytes(StandardCharsets.UTF_8);
+            }
+            parts[i] = cache[p];
+            length += parts[i].length;
+        }
+
+        byte[] out = new byte[length];
+        int offset = 0;
+        for (int i = 0; i < placeholders.length; i++) {
+            System.arraycopy(segments[i], 0, out, offset, segments[i].length);
+            offset += segments[i].length;
+            System.arraycopy(parts[i], 0, out, offset, parts[i].length);
+            offset += parts[i].length;
+        }
+        byte[] last = segments[placeholders.length];
+        System.arraycopy(last, 0, out, offset, last.length);
+        return out;
+    }
+
+    public String renderToString(Object... values) {
+        return new String(render(values), StandardCharsets.UTF_8);
+    }
+
+    public List<String> getParameters() {
+        return parameters;
+    }
+
+    /**
+     * Escapes text for html content and quoted attributes
+     */
+    static String escapeHtml(String value) {
+        int i = 0;
+        while (i < value.length() && !needsEscape(value.charAt(i))) {
+            i++;
+        }
+        if (i == value.length()) {
+            return value;
+        }
+
+        StringBuilder escaped = new StringBuilder(value.length() + 16);
+        escaped.append(value, 0, i);
+        for (; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '&' -> escaped.append("&amp;");
+                case '<' -> escaped.append("&lt;");
+                case '>' -> escaped.append("&gt;");
+                case '"' -> escaped.append("&quot;");
+                case '\'' -> escaped.append("&#39;");
+                default -> escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    private static boolean needsEscape(char c) {
+        return c == '&' || c == '<' || c == '>' || c == '"' || c == '\'';
+    }
+}
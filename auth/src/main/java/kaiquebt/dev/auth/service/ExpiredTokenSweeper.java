@@ -0,0 +1,161 @@
+package kaiquebt.dev.auth.service;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import kaiquebt.dev.auth.config.AuthThreads;
+import kaiquebt.dev.auth.config.TokenSweeperProperties;
+import kaiquebt.dev.auth.model.BaseUser;
+import kaiquebt.dev.auth.repository.BaseUserRepository;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Clears expired email confirmation and password recovery tokens, which otherwise stay in
+ * the users table until the user comes back. Each chunk is a select of ids followed by an
+ * UPDATE of those ids only, both short transactions, and a run stops when its time budget
+ * is spent. Running on several instances at once is harmless, they clear the same rows
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(prefix = "kaiquebt.dev.auth.token-sweeper", name = "enabled", havingValue = "true")
+public class ExpiredTokenSweeper<T extends BaseUser> {
+    private final BaseUserRepository<T> userRepository;
+    private final TokenSweeperProperties properties;
+    private final AuthMetrics authMetrics;
+    private final ScheduledExecutorService scheduler;
+
+    private final AtomicLong clearedEmailConfirmations = new AtomicLong();
+    private final AtomicLong clearedPasswordRecoveries = new AtomicLong();
+
+    public record SweepResult(int emailConfirmations, int passwordRecoveries, boolean complete, long elapsedMs) {}
+
+    private interface ExpiredIds {
+        List<Long> find(LocalDateTime now, Long afterId, Limit limit);
+    }
+
+    public ExpiredTokenSweeper(
+        BaseUserRepository<T> userRepository,
+        TokenSweeperProperties properties,
+        AuthMetrics authMetrics,
+        AuthThreads authThreads
+    ) {
+        this.userRepository = userRepository;
+        this.properties = properties;
+        this.authMetrics = authMetrics;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(authThreads.threadFactory("auth-token-sweeper"));
+    }
+
+    @PostConstruct
+    void start() {
+        scheduler.scheduleWithFixedDelay(this::sweepSafely,
+            properties.getIntervalMs(), properties.getIntervalMs(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Clears expired tokens until there are none left or time-budget-ms is spent. complete
+     * is false when the budget ran out first
+     */
+    public SweepResult sweep() {
+        return authMetrics.record("token-sweeper", this::doSweep);
+    }
+
+    public long getClearedEmailConfirmationCount() {
+        return clearedEmailConfirmations.get();
+    }
+
+    public long getClearedPasswordRecoveryCount() {
+        return clearedPasswordRecoveries.get();
+    }
+
+    private SweepResult doSweep() {
+        long start = System.currentTimeMillis();
+        long deadline = start + properties.getTimeBudgetMs();
+        LocalDateTime now = LocalDateTime.now();
+
+        int[] emailConfirmations = { 0 };
+        boolean complete = clear(now, deadline, emailConfirmations,
+            userRepository::findExpiredEmailConfirmationIds,
+            userRepository::clearExpiredEmailConfirmationTokens);
+        int[] passwordRecoveries = { 0 };
+        complete = complete && clear(now, deadline, passwordRecoveries,
+            userRepository::findExpiredPasswordRecoveryIds,
+            userRepository::clearExpiredPasswordRecoveryTokens);
+
+        clearedEmailConfirmations.addAndGet(emailConfirmations[0]);
+        clearedPasswordRecoveries.addAndGet(passwordRecoveries[0]);
+        return new SweepResult(emailConfirmations[0], passwordRecoveries[0], complete, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Chunks are read in id order after the last id of the previous chunk, so each one
+     * continues along the primary key instead of scanning the table from the start again
+     */
+    private boolean clear(
+        LocalDateTime now,
+        long deadline,
+        int[] cleared,
+        ExpiredIds findExpired,
+        BiFunction<Collection<Long>, LocalDateTime, Integer> clearExpired
+    ) {
+        int chunkSize = Math.max(1, properties.getChunkSize());
+        Long afterId = 0L;
+        while (System.currentTimeMillis() < deadline) {
+            List<Long> ids = findExpired.find(now, afterId, Limit.of(chunkSize));
+            if (ids.isEmpty()) {
+                return true;
+            }
+            cleared[0] += clearExpired.apply(ids, now);
+            afterId = ids.get(ids.size() - 1);
+            if (ids.size() < chunkSize) {
+                return true;
+            }
+            if (!pause()) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private boolean pause() {
+        if (properties.getPauseMs() <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(properties.getPauseMs());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void sweepSafely() {
+        try {
+            SweepResult result = sweep();
+            if (result.emailConfirmations() > 0 || result.passwordRecoveries() > 0 || !result.complete()) {
+                log.info("Tokens expirados removidos: {} confirmações de email, {} recuperações de senha em {} ms{}",
+                    result.emailConfirmations(), result.passwordRecoveries(), result.elapsedMs(),
+                    result.complete() ? "" : " (tempo esgotado, continua na próxima execução)");
+            }
+        } catch (Exception e) {
+            log.error("Erro ao remover tokens expirados", e);
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package kaiquebt.dev.auth.service;
 
+import java.nio.charset.StandardCharsets;
+
 import kaiquebt.dev.auth.model.BaseUser;
 
 public interface IEmailTemplateBean<T extends BaseUser> {
@@ -7,4 +9,16 @@ public interface IEmailTemplateBean<T extends BaseUser> {
     public String getEmailConfirmTitle();
     public String getRecoverAccountTitle();
     public String buildRecoverAccount(T user, String recoverToken);
+
+    /**
+     * The html EmailService actually sends, in UTF-8. Override with an EmailTemplate
+     * render to skip building the String first
+     */
+    default byte[] renderEmailConfirm(T user, String emailConfirmationToken) {
+        return buildEmailConfirm(user, emailConfirmationToken).getBytes(StandardCharsets.UTF_8);
+    }
+
+    default byte[] renderRecoverAccount(T user, String recoverToken) {
+        return buildRecoverAccount(user, recoverToken).getBytes(StandardCharsets.UTF_8);
+    }
 }
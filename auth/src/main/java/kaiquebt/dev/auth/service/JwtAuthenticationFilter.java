@@ -1,28 +1,50 @@
 package kaiquebt.dev.auth.service;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
 
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private final JwtTokenProvider jwtTokenProvider;
     private final CustomUserDetailsService<?> userDetailsService;
+    // resolved per request, the revocation service depends on beans of the security config
+    private final ObjectProvider<TokenRevocationService<?>> tokenRevocationService;
+    private final AuthMetrics authMetrics;
+
+    public JwtAuthenticationFilter(
+        JwtTokenProvider jwtTokenProvider,
+        CustomUserDetailsService<?> userDetailsService,
+        ObjectProvider<TokenRevocationService<?>> tokenRevocationServiceProvider,
+        AuthMetrics authMetrics
+    ) {
+        this.jwtTokenProvider = jwtTokenProvider;
+        this.userDetailsService = userDetailsService;
+        this.tokenRevocationService = tokenRevocationServiceProvider;
+        this.authMetrics = authMetrics;
+    }
+
+    // When enabled the principal is built from the token claims and the user is only
+    // loaded from the database if a controller calls CustomUserDetails.getUser()
+    @Value("${kaiquebt.dev.auth.stateless-principal:false}")
+    private boolean statelessPrincipal;
 
     @Override
     protected void doFilterInternal(
@@ -32,21 +54,57 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     ) throws ServletException, IOException {
         String token = getTokenFromRequest(request);
 
-        if (StringUtils.hasText(token) && jwtTokenProvider.validateToken(token)) {
-            String username = jwtTokenProvider.getUsernameFromToken(token);
-            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+        if (StringUtils.hasText(token)) {
+            // only the authentication is timed, not the rest of the chain
+            long start = System.nanoTime();
+            String outcome = "invalid";
+            try {
+                outcome = authenticate(token, request) ? "authenticated" : "revoked";
+            } finally {
+                authMetrics.record("filter.authenticate", outcome, System.nanoTime() - start);
+            }
+        }
 
-            UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(
-                userDetails,
-                null,
-                userDetails.getAuthorities()
-            );
+        filterChain.doFilter(request, response);
+    }
 
-            authenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-            SecurityContextHolder.getContext().setAuthentication(authenticationToken);
+    // false when the token was revoked, revoked tokens go on as anonymous requests
+    private boolean authenticate(String token, HttpServletRequest request) {
+        Claims claims = jwtTokenProvider.parseAndValidate(token);
+        TokenRevocationService<?> revocation = tokenRevocationService.getIfAvailable();
+        if (revocation != null && revocation.isRevoked(claims)) {
+            log.debug("Revoked token used, jti {}", claims.getId());
+            return false;
         }
 
-        filterChain.doFilter(request, response);
+        UserDetails userDetails = loadPrincipal(claims);
+
+        UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(
+            userDetails,
+            null,
+            userDetails.getAuthorities()
+        );
+
+        authenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+        SecurityContextHolder.getContext().setAuthentication(authenticationToken);
+        return true;
+    }
+
+    private UserDetails loadPrincipal(Claims claims) {
+        Long userId = claims.get("userId", Long.class);
+
+        // tokens issued before the userId claim existed still go through the database
+        if (!statelessPrincipal || userId == null) {
+            return userDetailsService.loadUserByUsername(claims.getSubject());
+        }
+
+        Collection<?> roles = claims.get("roles", List.class);
+        return CustomUserDetails.fromClaims(
+            userId,
+            claims.getSubject(),
+            roles == null ? List.of() : roles.stream().map(String::valueOf).toList(),
+            () -> userDetailsService.loadUserById(userId)
+        );
     }
 
     private String getTokenFromRequest(HttpServletRequest request) {
@@ -58,4 +116,4 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         return null;
     }
-}
\ No newline at end of file
+}
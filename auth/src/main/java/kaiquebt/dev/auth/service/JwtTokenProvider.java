@@ -3,11 +3,15 @@ package kaiquebt.dev.auth.service;
 import java.security.Key;
 import java.util.Date;
 import java.util.Map;
+import java.util.UUID;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import kaiquebt.dev.auth.config.KeyRingProperties;
 import kaiquebt.dev.auth.model.BaseUser;
 
 @Component
@@ -19,6 +23,46 @@ public class JwtTokenProvider {
     @Value("${kaiquebt.dev.auth.jwt-expiration-milliseconds}")
     private long jwtExpirationInMs;
 
+    // Resolved on first use, the key ring depends on beans of the security config
+    private final ObjectProvider<SigningKeyRing<?>> keyRingProvider;
+    private volatile SigningKeyRing<?> keyRing;
+    private final KeyRingProperties keyRingProperties;
+
+    // Both are immutable and thread-safe, so they are built once and shared by every request
+    private Key signingKey;
+    private JwtParser jwtParser;
+
+    private final AuthMetrics authMetrics;
+
+    public JwtTokenProvider(
+        ObjectProvider<SigningKeyRing<?>> keyRingProvider,
+        KeyRingProperties keyRingProperties,
+        AuthMetrics authMetrics
+    ) {
+        this.keyRingProvider = keyRingProvider;
+        this.keyRingProperties = keyRingProperties;
+        this.authMetrics = authMetrics;
+    }
+
+    @PostConstruct
+    void init() {
+        this.signingKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtSecret));
+        if (!keyRingProperties.isEnabled()) {
+            this.jwtParser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+            return;
+        }
+        this.jwtParser = Jwts.parserBuilder()
+            .setSigningKeyResolver(new SigningKeyResolverAdapter() {
+                @Override
+                public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                    return resolveVerificationKey(header);
+                }
+            })
+            .build();
+    }
+
     public static class GeneratedTokenResponse {
         public GeneratedTokenResponse(String token, BaseUser user) {
             this.user = user;
@@ -34,42 +78,89 @@ public class JwtTokenProvider {
     }
 
     public GeneratedTokenResponse generateToken(BaseUser user,  Map<String, Object> extraClaims ) {
+        return authMetrics.record("jwt.generate", () -> buildToken(user, extraClaims));
+    }
+
+    private GeneratedTokenResponse buildToken(BaseUser user, Map<String, Object> extraClaims) {
         Date currentDate = new Date();
         Date expireDate = new Date(currentDate.getTime() + jwtExpirationInMs);
         
         
-        String token = Jwts.builder()
+        JwtBuilder builder = Jwts.builder()
             .setSubject(user.getEmail())
             .setIssuedAt(currentDate)
             .setExpiration(expireDate)
+            .setId(UUID.randomUUID().toString())
+            .claim("userId", user.getId())
+            .claim("gen", user.getTokenGeneration() != null ? user.getTokenGeneration() : 0)
             .claim("username", user.getUsername())
             .claim("roles", user.getRoles())
             .claim("email", user.getEmail())
-            .addClaims(extraClaims)
-            .signWith(key())
-        .compact();
+            .addClaims(extraClaims);
+
+        if (keyRingProperties.isEnabled()) {
+            SigningKeyRing.SigningKey key = keyRing().signingKey();
+            builder.setHeaderParam(JwsHeader.KEY_ID, key.kid())
+                .signWith(key.privateKey(), SignatureAlgorithm.ES256);
+        } else {
+            builder.signWith(signingKey);
+        }
+        String token = builder.compact();
         return new GeneratedTokenResponse(token, user);
     }
 
-    private Key key() {
-        return Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtSecret));
+    private Key resolveVerificationKey(JwsHeader<?> header) {
+        String kid = header.getKeyId();
+        if (kid == null) {
+            // issued with jwt-secret before the key ring was enabled
+            if (keyRingProperties.isAcceptHmacTokens() && header.getAlgorithm() != null && header.getAlgorithm().startsWith("HS")) {
+                return signingKey;
+            }
+            throw new UnsupportedJwtException("Token without kid");
+        }
+        if (!SigningKeyRing.ALGORITHM.equals(header.getAlgorithm())) {
+            throw new UnsupportedJwtException("Unexpected algorithm " + header.getAlgorithm());
+        }
+        Key key = keyRing().verificationKey(kid);
+        if (key == null) {
+            throw new UnsupportedJwtException("Unknown kid " + kid);
+        }
+        return key;
+    }
+
+    private SigningKeyRing<?> keyRing() {
+        SigningKeyRing<?> ring = this.keyRing;
+        if (ring == null) {
+            ring = keyRingProvider.getObject();
+            this.keyRing = ring;
+        }
+        return ring;
+    }
+
+    public long getExpirationInMs() {
+        return jwtExpirationInMs;
     }
+
     public String getUsernameFromToken(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(key())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-        return claims.getSubject();
+        return parseAndValidate(token).getSubject();
     }
 
     public boolean validateToken(String token) {
+        parseAndValidate(token);
+        return true;
+    }
+
+    /**
+     * Verifies the signature and expiration of the token and returns its claims,
+     * so callers that need both don't have to parse the token twice
+     */
+    public Claims parseAndValidate(String token) {
+        return authMetrics.record("jwt.validate", () -> parse(token));
+    }
+
+    private Claims parse(String token) {
         try {
-            Jwts.parserBuilder()
-                    .setSigningKey(key())
-                    .build()
-                    .parse(token);
-            return true;
+            return jwtParser.parseClaimsJws(token).getBody();
         } catch (MalformedJwtException ex) {
             throw new IllegalArgumentException("Invalid JWT token");
         } catch (ExpiredJwtException ex) {
@@ -0,0 +1,142 @@
+package kaiquebt.dev.auth.service;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import kaiquebt.dev.auth.config.LoginLimiterProperties;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bounds how many password checks run at the same time. Callers over the limit wait in a
+ * bounded queue for up to queue-timeout-ms, anything beyond that is rejected right away so
+ * a login burst can't take every request thread and core. Queue depth, active checks, wait
+ * time and outcomes are Micrometer meters, published to the application's registry when
+ * kaiquebt.dev.auth.metrics.enabled is true
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(prefix = "kaiquebt.dev.auth.login-limiter", name = "enabled", havingValue = "true")
+public class LoginLimiter implements SmartInitializingSingleton {
+    public static final String QUEUE_GAUGE = "auth.login-limiter.queue";
+    public static final String ACTIVE_GAUGE = "auth.login-limiter.active";
+    public static final String WAIT_TIMER = "auth.login-limiter.wait";
+    public static final String REQUESTS_COUNTER = "auth.login-limiter.requests";
+
+    private final Semaphore permits;
+    private final int maxConcurrent;
+    private final int maxQueue;
+    private final long queueTimeoutMs;
+
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    private final AuthMetrics authMetrics;
+    // a local registry keeps the getters working, the application registry is added once it exists
+    private final CompositeMeterRegistry meters = new CompositeMeterRegistry();
+    private final Counter admitted;
+    private final Counter rejected;
+    private final Counter timedOut;
+    private final Timer wait;
+
+    public LoginLimiter(LoginLimiterProperties properties, AuthMetrics authMetrics) {
+        this.maxConcurrent = properties.getMaxConcurrent() > 0
+            ? properties.getMaxConcurrent()
+            : Runtime.getRuntime().availableProcessors();
+        this.maxQueue = properties.getMaxQueue();
+        this.queueTimeoutMs = properties.getQueueTimeoutMs();
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.authMetrics = authMetrics;
+
+        meters.add(new SimpleMeterRegistry());
+        Gauge.builder(QUEUE_GAUGE, waiting, AtomicInteger::get)
+            .description("Logins waiting for a password check slot")
+            .register(meters);
+        Gauge.builder(ACTIVE_GAUGE, permits, p -> maxConcurrent - p.availablePermits())
+            .description("Password checks running")
+            .register(meters);
+        this.wait = Timer.builder(WAIT_TIMER)
+            .description("Time admitted logins waited in the queue")
+            .publishPercentileHistogram(authMetrics.isHistograms())
+            .register(meters);
+        this.admitted = requests("admitted");
+        this.rejected = requests("rejected");
+        this.timedOut = requests("timeout");
+        log.info("Login limiter: {} concurrent, queue {}, timeout {} ms", maxConcurrent, maxQueue, queueTimeoutMs);
+    }
+
+    public <R> R run(Supplier<R> task) {
+        long start = System.nanoTime();
+        // tryAcquire() barges ahead of queued callers even on a fair semaphore, the timed one doesn't
+        if (!tryAcquire(0)) {
+            if (waiting.incrementAndGet() > maxQueue) {
+                waiting.decrementAndGet();
+                rejected.increment();
+                throw new LoginRejectedException("Fila de login cheia");
+            }
+
+            boolean acquired;
+            try {
+                acquired = tryAcquire(queueTimeoutMs);
+            } finally {
+                waiting.decrementAndGet();
+            }
+
+            if (!acquired) {
+                timedOut.increment();
+                throw new LoginRejectedException("Tempo de espera na fila de login esgotado");
+            }
+        }
+
+        admitted.increment();
+        wait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        try {
+            return task.get();
+        } finally {
+            permits.release();
+        }
+    }
+
+    // resolved once every singleton exists, earlier a registry declared in the security config would be a cycle
+    @Override
+    public void afterSingletonsInstantiated() {
+        authMetrics.getRegistry().ifPresent(meters::add);
+    }
+
+    private Counter requests(String outcome) {
+        return Counter.builder(REQUESTS_COUNTER)
+            .description("Logins that reached the limiter, by outcome")
+            .tag("outcome", outcome)
+            .register(meters);
+    }
+
+    private boolean tryAcquire(long timeoutMs) {
+        try {
+            return permits.tryAcquire(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    public int getMaxConcurrent() { return maxConcurrent; }
+    public int getActiveCount() { return maxConcurrent - permits.availablePermits(); }
+    public int getQueueDepth() { return waiting.get(); }
+    public long getAdmittedCount() { return (long) admitted.count(); }
+    public long getRejectedCount() { return (long) rejected.count(); }
+    public long getTimedOutCount() { return (long) timedOut.count(); }
+    public long getTotalWaitNanos() { return (long) wait.totalTime(TimeUnit.NANOSECONDS); }
+    // decaying max of the recent waits
+    public long getMaxWaitNanos() { return (long) wait.max(TimeUnit.NANOSECONDS); }
+    public double getAverageWaitMillis() { return wait.mean(TimeUnit.MILLISECONDS); }
+}
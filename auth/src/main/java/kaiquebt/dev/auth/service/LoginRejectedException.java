@@ -0,0 +1,11 @@
+package kaiquebt.dev.auth.service;
+
+/**
+ * Thrown when the login limiter has no room for another password check,
+ * the request should be answered with 503 and retried later
+ */
+public class LoginRejectedException extends RuntimeException {
+    public LoginRejectedException(String message) {
+        super(message);
+    }
+}
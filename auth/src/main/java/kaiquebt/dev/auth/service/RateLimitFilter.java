@@ -0,0 +1,90 @@
+package kaiquebt.dev.auth.service;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import kaiquebt.dev.auth.config.RateLimitProperties;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Per IP rate limit for the auth endpoints listed in kaiquebt.dev.auth.rate-limit.rules.
+ * Counts live in one fixed size sketch per rule, so memory does not grow with the number
+ * of distinct addresses. Keyed on the remote address only, X-Forwarded-For is sent by the
+ * client and can't be trusted here; behind a proxy set server.forward-headers-strategy
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+@ConditionalOnProperty(prefix = "kaiquebt.dev.auth.rate-limit", name = "enabled", havingValue = "true")
+public class RateLimitFilter extends OncePerRequestFilter {
+    private static final String REJECTED_BODY =
+        "{\"success\":false,\"message\":\"Muitas requisições. Tente novamente mais tarde\",\"data\":null}";
+
+    // full path -> limit, read only after construction
+    private final Map<String, Limit> limits = new HashMap<>();
+    // decodes the path like the dispatcher does, /%6Cogin must count as /login
+    private final UrlPathHelper urlPathHelper = new UrlPathHelper();
+
+    private record Limit(int limit, SlidingWindowSketch sketch) {}
+
+    public RateLimitFilter(
+        RateLimitProperties properties,
+        @Value("${kaiquebt.dev.auth.base-path:/api/auth}") String basePath
+    ) {
+        for (RateLimitProperties.Rule rule : properties.getRules()) {
+            String path = normalize(basePath + (rule.getPath().startsWith("/") ? "" : "/") + rule.getPath());
+            SlidingWindowSketch sketch = new SlidingWindowSketch(
+                properties.getWidth(), properties.getDepth(), rule.getWindowSeconds() * 1000
+            );
+            limits.put(path, new Limit(rule.getLimit(), sketch));
+            log.info("Rate limit: {} -> {} requests per {}s per IP", path, rule.getLimit(), rule.getWindowSeconds());
+        }
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String path = normalize(urlPathHelper.getPathWithinApplication(request));
+        Limit limit = limits.get(path);
+        if (limit == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        String ip = request.getRemoteAddr();
+        double estimate = limit.sketch().increment(ip, System.currentTimeMillis());
+        if (estimate <= limit.limit()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(limit.sketch().getWindowMs() / 1000));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        response.getWriter().write(REJECTED_BODY);
+    }
+
+    private static String normalize(String path) {
+        String normalized = path.contains("//") ? path.replaceAll("/{2,}", "/") : path;
+        return normalized.length() > 1 && normalized.endsWith("/")
+            ? normalized.substring(0, normalized.length() - 1)
+            : normalized;
+    }
+}
@@ -0,0 +1,178 @@
+package kaiquebt.dev.auth.service;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.UUID;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import kaiquebt.dev.auth.config.RefreshTokenProperties;
+import kaiquebt.dev.auth.interfaces.IRefreshTokenInstantiator;
+import kaiquebt.dev.auth.model.BaseRefreshToken;
+import kaiquebt.dev.auth.model.BaseUser;
+import kaiquebt.dev.auth.model.TokenData;
+import kaiquebt.dev.auth.repository.BaseRefreshTokenRepository;
+import kaiquebt.dev.auth.repository.BaseUserRepository;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Issues and rotates opaque refresh tokens. Tokens are cached when issued, so a refresh only
+ * runs the conditional update that marks the token as used plus the insert of the next one.
+ * The database stays the authority, a stale cache entry can't bring back a used or revoked token
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(prefix = "kaiquebt.dev.auth.refresh-token", name = "enabled", havingValue = "true")
+public class RefreshTokenService<T extends BaseUser, R extends BaseRefreshToken<T>> {
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final BaseRefreshTokenRepository<R> repository;
+    private final IRefreshTokenInstantiator<T, R> instantiator;
+    private final BaseUserRepository<T> userRepository;
+    private final Duration expiration;
+
+    // token hash -> what is needed to rotate it without reading the row
+    private final Cache<String, CachedToken> tokens;
+    // families revoked by this instance
+    private final Cache<String, Boolean> revokedFamilies;
+
+    private record CachedToken(Long id, Long userId, String familyId, LocalDateTime expiresAt) {}
+
+    public record Rotation<T>(T user, String refreshToken) {}
+
+    public RefreshTokenService(
+        BaseRefreshTokenRepository<R> repository,
+        IRefreshTokenInstantiator<T, R> instantiator,
+        BaseUserRepository<T> userRepository,
+        RefreshTokenProperties properties
+    ) {
+        this.repository = repository;
+        this.instantiator = instantiator;
+        this.userRepository = userRepository;
+        this.expiration = Duration.ofSeconds(properties.getExpirationSeconds());
+        this.tokens = Caffeine.newBuilder()
+            .maximumSize(properties.getCacheMaxSize())
+            .expireAfterWrite(Duration.ofSeconds(properties.getCacheExpireAfterWriteSeconds()))
+            .build();
+        this.revokedFamilies = Caffeine.newBuilder()
+            .maximumSize(properties.getCacheMaxSize())
+            .expireAfterWrite(expiration)
+            .build();
+    }
+
+    /**
+     * Starts a new token family for the user, returns the value to hand to the client
+     */
+    @Transactional
+    public String issue(T user) {
+        return issue(user, UUID.randomUUID().toString());
+    }
+
+    /**
+     * Exchanges a refresh token for a new one of the same family. Presenting a token that
+     * was already exchanged means it leaked, so the whole family is revoked
+     */
+    @Transactional(noRollbackFor = IllegalArgumentException.class)
+    public Rotation<T> rotate(String refreshToken) {
+        if (refreshToken == null || refreshToken.isBlank()) {
+            throw new IllegalArgumentException("Refresh token inválido");
+        }
+
+        String hash = TokenData.digest(refreshToken);
+        CachedToken token = tokens.getIfPresent(hash);
+        if (token == null) {
+            token = repository.findByTokenHash(hash)
+                .map(stored -> new CachedToken(stored.getId(), stored.getUser().getId(), stored.getFamilyId(), stored.getExpiresAt()))
+                .orElseThrow(() -> new IllegalArgumentException("Refresh token inválido"));
+        }
+
+        if (revokedFamilies.getIfPresent(token.familyId()) != null) {
+            throw new IllegalArgumentException("Refresh token revogado");
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        if (!token.expiresAt().isAfter(now)) {
+            tokens.invalidate(hash);
+            throw new IllegalArgumentException("Refresh token expirado");
+        }
+
+        tokens.invalidate(hash);
+        if (repository.markUsed(token.id(), now) == 0) {
+            revokeFamily(token.familyId(), now);
+            log.warn("Refresh token reused, family {} of user {} revoked", token.familyId(), token.userId());
+            throw new IllegalArgumentException("Refresh token revogado");
+        }
+
+        T user = userRepository.findById(token.userId())
+            .orElseThrow(() -> new IllegalArgumentException("Usuário não encontrado"));
+        return new Rotation<>(user, issue(user, token.familyId()));
+    }
+
+    /**
+     * Revokes the family of the given token (logout of one device), unknown tokens are ignored
+     */
+    @Transactional
+    public void revoke(String refreshToken) {
+        if (refreshToken == null || refreshToken.isBlank()) {
+            return;
+        }
+        String hash = TokenData.digest(refreshToken);
+        CachedToken cached = tokens.getIfPresent(hash);
+        String familyId = cached != null
+            ? cached.familyId()
+            : repository.findByTokenHash(hash).map(BaseRefreshToken::getFamilyId).orElse(null);
+        tokens.invalidate(hash);
+        if (familyId != null) {
+            revokeFamily(familyId, LocalDateTime.now());
+        }
+    }
+
+    /**
+     * Revokes every refresh token of the user (logout of all devices)
+     */
+    @Transactional
+    public int revokeAll(Long userId) {
+        return repository.revokeAllForUser(userId, LocalDateTime.now());
+    }
+
+    private void revokeFamily(String familyId, LocalDateTime now) {
+        revokedFamilies.put(familyId, Boolean.TRUE);
+        repository.revokeFamily(familyId, now);
+    }
+
+    private String issue(T user, String familyId) {
+        byte[] bytes = new byte[32];
+        RANDOM.nextBytes(bytes);
+        String value = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        String hash = TokenData.digest(value);
+
+        R token = instantiator.instantiate(user);
+        token.setUser(user);
+        token.setTokenHash(hash);
+        token.setFamilyId(familyId);
+        token.setExpiresAt(LocalDateTime.now().plus(expiration));
+        repository.save(token);
+
+        CachedToken cached = new CachedToken(token.getId(), user.getId(), familyId, token.getExpiresAt());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    tokens.put(hash, cached);
+                }
+            });
+        } else {
+            tokens.put(hash, cached);
+        }
+        return value;
+    }
+}
@@ -23,7 +23,13 @@ public class RequestContextService {
      * Extract client IP address from request, handling proxies and load balancers
      */
     public String getClientIp() {
-        HttpServletRequest request = getCurrentRequest();
+        return getClientIp(getCurrentRequest());
+    }
+
+    /**
+     * Same as getClientIp(), for callers that already have the request (e.g. filters)
+     */
+    public String getClientIp(HttpServletRequest request) {
         String[] headersToCheck = {
             "X-Forwarded-For",
             "Proxy-Client-IP",
@@ -0,0 +1,298 @@
+package kaiquebt.dev.auth.service;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.metamodel.EntityType;
+import kaiquebt.dev.auth.config.AuthThreads;
+import kaiquebt.dev.auth.config.SessionLogRetentionProperties;
+import kaiquebt.dev.auth.config.SessionLogRetentionProperties.Partitioning;
+import kaiquebt.dev.auth.model.BaseSessionLogDailyRollup;
+import kaiquebt.dev.auth.model.BaseUserSessionLog;
+import kaiquebt.dev.auth.repository.BaseUserSessionLogRepository;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps the session log table at retention-days of history. Each run first rolls every
+ * day older than the retention up into the daily rollup table, when the application maps
+ * one, then removes those days: whole monthly partitions are dropped when the table is
+ * partitioned on PostgreSQL, the remaining rows are deleted in chunks. A day is only
+ * removed after it was rolled up, so counts survive a run that stops halfway
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(prefix = "kaiquebt.dev.auth.session-log.retention", name = "enabled", havingValue = "true")
+public class SessionLogRetentionService {
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private final BaseUserSessionLogRepository<?> logRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final SessionLogRetentionProperties properties;
+    private final AuthMetrics authMetrics;
+    private final ScheduledExecutorService scheduler;
+
+    private final String logTable;
+    private final Pattern partitionName;
+    // null when the application has no rollup entity
+    private final RollupTarget rollup;
+
+    public record RetentionResult(int rolledUpDays, int droppedPartitions, long deletedLogs, boolean complete, long elapsedMs) {}
+
+    private record RollupTarget(String insertSql, String maxDaySql) {}
+
+    public SessionLogRetentionService(
+        BaseUserSessionLogRepository<?> logRepository,
+        JdbcTemplate jdbcTemplate,
+        EntityManagerFactory entityManagerFactory,
+        SessionLogRetentionProperties properties,
+        AuthMetrics authMetrics,
+        AuthThreads authThreads
+    ) {
+        this.logRepository = logRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = properties;
+        this.authMetrics = authMetrics;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(authThreads.threadFactory("auth-session-log-retention"));
+
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        Class<?> logClass = entity(entityManagerFactory, BaseUserSessionLog.class);
+        if (logClass == null) {
+            throw new IllegalStateException("Nenhuma entidade estende BaseUserSessionLog");
+        }
+        AbstractEntityPersister logs = persister(sessionFactory, logClass);
+        this.logTable = logs.getIdentifierTableName();
+        this.partitionName = Pattern.compile(Pattern.quote(logTable.toLowerCase(Locale.ROOT)) + "_p(\\d{6})");
+
+        Class<?> rollupClass = entity(entityManagerFactory, BaseSessionLogDailyRollup.class);
+        this.rollup = rollupClass != null ? rollupTarget(persister(sessionFactory, rollupClass), logs) : null;
+    }
+
+    @PostConstruct
+    void start() {
+        if (properties.getPartitioning() == Partitioning.POSTGRES_MONTHLY) {
+            // inserts fail once the month has no partition, don't wait for the first run
+            createPartitions();
+        }
+        log.info("Session log retention: {} days, rollups {}, partitioning {}", properties.getRetentionDays(),
+            rollup != null ? "on" : "off", properties.getPartitioning());
+        scheduler.scheduleWithFixedDelay(this::runSafely,
+            properties.getIntervalMs(), properties.getIntervalMs(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        scheduler.shutdownNow();
+    }
+
+    public boolean isRollupEnabled() {
+        return rollup != null;
+    }
+
+    /**
+     * Runs the job now. complete is false when time-budget-ms ran out before everything
+     * older than the retention was rolled up and removed
+     */
+    public RetentionResult run() {
+        return authMetrics.record("session-log.retention", this::doRun);
+    }
+
+    private RetentionResult doRun() {
+        long start = System.currentTimeMillis();
+        long deadline = start + properties.getTimeBudgetMs();
+        LocalDateTime cutoff = LocalDate.now().minusDays(properties.getRetentionDays()).atStartOfDay();
+
+        if (properties.getPartitioning() == Partitioning.POSTGRES_MONTHLY) {
+            createPartitions();
+        }
+
+        int rolledUpDays = 0;
+        LocalDateTime removeBefore = cutoff;
+        boolean complete = true;
+        if (rollup != null) {
+            LocalDate lastRolledUp = jdbcTemplate.queryForObject(rollup.maxDaySql(), LocalDate.class);
+            LocalDateTime from = lastRolledUp != null ? lastRolledUp.plusDays(1).atStartOfDay() : LocalDateTime.of(1970, 1, 1, 0, 0);
+            while (true) {
+                if (System.currentTimeMillis() >= deadline) {
+                    // only what is already rolled up can go
+                    removeBefore = from.isBefore(cutoff) ? from : cutoff;
+                    complete = false;
+                    break;
+                }
+                LocalDateTime oldest = logRepository.findOldestCreatedAt(from, cutoff);
+                if (oldest == null) {
+                    break;
+                }
+                LocalDate day = oldest.toLocalDate();
+                rollUp(day);
+                rolledUpDays++;
+                from = day.plusDays(1).atStartOfDay();
+            }
+        }
+
+        int droppedPartitions = 0;
+        if (properties.getPartitioning() == Partitioning.POSTGRES_MONTHLY) {
+            droppedPartitions = dropPartitions(removeBefore);
+        }
+
+        long deletedLogs = 0;
+        int chunkSize = Math.max(1, properties.getChunkSize());
+        while (true) {
+            if (System.currentTimeMillis() >= deadline) {
+                complete = false;
+                break;
+            }
+            List<Long> ids = logRepository.findIdsCreatedBefore(removeBefore, Limit.of(chunkSize));
+            if (ids.isEmpty()) {
+                break;
+            }
+            deletedLogs += logRepository.deleteByIds(ids);
+            if (ids.size() < chunkSize) {
+                break;
+            }
+            if (!pause()) {
+                complete = false;
+                break;
+            }
+        }
+
+        return new RetentionResult(rolledUpDays, droppedPartitions, deletedLogs, complete, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * A single INSERT ... SELECT ... GROUP BY for the whole day
+     */
+    private void rollUp(LocalDate day) {
+        jdbcTemplate.update(rollup.insertSql(),
+            Date.valueOf(day),
+            Timestamp.valueOf(day.atStartOfDay()),
+            Timestamp.valueOf(day.plusDays(1).atStartOfDay()));
+    }
+
+    private void createPartitions() {
+        YearMonth month = YearMonth.now();
+        for (int i = 0; i <= properties.getPartitionsAhead(); i++, month = month.plusMonths(1)) {
+            String sql = "create table if not exists " + logTable + "_p" + month.format(PARTITION_SUFFIX)
+                + " partition of " + logTable
+                + " for values from ('" + month.atDay(1) + "') to ('" + month.plusMonths(1).atDay(1) + "')";
+            try {
+                jdbcTemplate.execute(sql);
+            } catch (Exception e) {
+                log.error("Erro ao criar a partição {} de {}: {}", month, logTable, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Drops the monthly partitions that end at or before removeBefore, no row by row
+     * delete and no vacuum work left behind
+     */
+    private int dropPartitions(LocalDateTime removeBefore) {
+        List<String> partitions = jdbcTemplate.queryForList("""
+            select c.relname
+            from pg_inherits i
+            join pg_class c on c.oid = i.inhrelid
+            where i.inhparent = to_regclass(?)
+            """, String.class, logTable);
+
+        int dropped = 0;
+        for (String partition : partitions) {
+            Matcher matcher = partitionName.matcher(partition.toLowerCase(Locale.ROOT));
+            if (!matcher.matches()) {
+                continue;
+            }
+            YearMonth month = YearMonth.parse(matcher.group(1), PARTITION_SUFFIX);
+            if (month.plusMonths(1).atDay(1).atStartOfDay().isAfter(removeBefore)) {
+                continue;
+            }
+            jdbcTemplate.execute("drop table " + partition);
+            log.info("Partição {} de logs de sessão removida", partition);
+            dropped++;
+        }
+        return dropped;
+    }
+
+    private boolean pause() {
+        if (properties.getPauseMs() <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(properties.getPauseMs());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void runSafely() {
+        try {
+            RetentionResult result = run();
+            if (result.rolledUpDays() > 0 || result.droppedPartitions() > 0 || result.deletedLogs() > 0 || !result.complete()) {
+                log.info("Retenção de logs de sessão: {} dias consolidados, {} partições e {} logs removidos em {} ms{}",
+                    result.rolledUpDays(), result.droppedPartitions(), result.deletedLogs(), result.elapsedMs(),
+                    result.complete() ? "" : " (tempo esgotado, continua na próxima execução)");
+            }
+        } catch (Exception e) {
+            log.error("Erro na retenção de logs de sessão", e);
+        }
+    }
+
+    /**
+     * Table and column names come from the Hibernate mapping of the application entities
+     */
+    private static RollupTarget rollupTarget(AbstractEntityPersister rollups, AbstractEntityPersister logs) {
+        String table = rollups.getIdentifierTableName();
+        String user = logs.getPropertyColumnNames("user")[0];
+        String origin = logs.getPropertyColumnNames("sessionOrigin")[0];
+        String createdAt = logs.getPropertyColumnNames("createdAt")[0];
+        String logDate = rollups.getPropertyColumnNames("logDate")[0];
+
+        String insertSql = "insert into " + table + " ("
+            + String.join(",",
+                logDate,
+                rollups.getPropertyColumnNames("userId")[0],
+                rollups.getPropertyColumnNames("sessionOrigin")[0],
+                rollups.getPropertyColumnNames("loginCount")[0])
+            + ") select cast(? as date), " + user + ", " + origin + ", count(*)"
+            + " from " + logs.getIdentifierTableName()
+            + " where " + createdAt + " >= ? and " + createdAt + " < ?"
+            + " group by " + user + ", " + origin;
+        return new RollupTarget(insertSql, "select max(" + logDate + ") from " + table);
+    }
+
+    private static AbstractEntityPersister persister(SessionFactoryImplementor sessionFactory, Class<?> entityClass) {
+        return (AbstractEntityPersister) sessionFactory.getMappingMetamodel().getEntityDescriptor(entityClass);
+    }
+
+    private static Class<?> entity(EntityManagerFactory entityManagerFactory, Class<?> base) {
+        List<Class<?>> entities = entityManagerFactory.getMetamodel().getEntities().stream()
+            .<Class<?>>map(EntityType::getJavaType)
+            .filter(base::isAssignableFrom)
+            .toList();
+        if (entities.size() > 1) {
+            throw new IllegalStateException("Mais de uma entidade estende " + base.getSimpleName() + ": " + entities);
+        }
+        return entities.isEmpty() ? null : entities.get(0);
+    }
+}
@@ -0,0 +1,357 @@
+package kaiquebt.dev.auth.service;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.SecureRandom;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import kaiquebt.dev.auth.config.AuthThreads;
+import kaiquebt.dev.auth.config.KeyRingProperties;
+import kaiquebt.dev.auth.interfaces.ISigningKeyInstantiator;
+import kaiquebt.dev.auth.model.BaseSigningKey;
+import kaiquebt.dev.auth.repository.BaseSigningKeyRepository;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * ES256 key ring used to sign access tokens instead of the shared HMAC secret. Keys live in
+ * a table so every instance signs with the same key and publishes the same JWKS. A new key
+ * is created prepublish-seconds before it starts signing, and the previous one stays
+ * published until every token it signed has expired
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(prefix = "kaiquebt.dev.auth.key-ring", name = "enabled", havingValue = "true")
+public class SigningKeyRing<K extends BaseSigningKey> {
+    public static final String ALGORITHM = "ES256";
+    private static final long CLOCK_SKEW_MS = 60_000;
+    // bounds reloads triggered by tokens with an unknown kid
+    private static final long MIN_RELOAD_INTERVAL_MS = 1_000;
+    private static final String ENCRYPTED_PREFIX = "aesgcm:";
+    private static final int IV_BYTES = 12;
+    private static final int TAG_BITS = 128;
+
+    private final BaseSigningKeyRepository<K> repository;
+    private final ISigningKeyInstantiator<K> instantiator;
+    private final KeyRingProperties properties;
+    private final long tokenLifetimeMs;
+    private final SecretKey encryptionKey;
+    private final SecureRandom random = new SecureRandom();
+
+    private final ScheduledExecutorService scheduler;
+    // reload queries the database and may run on a request thread, synchronized would pin it when virtual
+    private final ReentrantLock reloadLock = new ReentrantLock();
+    private volatile Snapshot snapshot = new Snapshot(List.of(), Map.of());
+    private volatile long lastReload;
+
+    public record SigningKey(Long id, String kid, long activatesAtMs, ECPublicKey publicKey, PrivateKey privateKey) {}
+
+    // keys ordered by activation
+    private record Snapshot(List<SigningKey> keys, Map<String, SigningKey> byKid) {}
+
+    public SigningKeyRing(
+        BaseSigningKeyRepository<K> repository,
+        ISigningKeyInstantiator<K> instantiator,
+        KeyRingProperties properties,
+        AuthThreads authThreads,
+        @Value("${kaiquebt.dev.auth.jwt-expiration-milliseconds}") long tokenLifetimeMs,
+        @Value("${kaiquebt.dev.auth.jwt-secret}") String jwtSecret
+    ) {
+        this.repository = repository;
+        this.instantiator = instantiator;
+        this.properties = properties;
+        this.tokenLifetimeMs = tokenLifetimeMs;
+        // always built, encrypted rows stay readable after encrypt-private-keys is turned off
+        this.encryptionKey = encryptionKey(properties.getEncryptionKey(), jwtSecret);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(authThreads.threadFactory("signing-key-ring"));
+    }
+
+    @PostConstruct
+    void start() {
+        reload();
+        rotateIfDue();
+        log.info("Signing key ring loaded with {} keys, signing with kid {}", snapshot.keys().size(), signingKey().kid());
+        scheduler.scheduleWithFixedDelay(this::maintainSafely,
+            properties.getReloadIntervalMs(), properties.getReloadIntervalMs(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * The most recently activated key
+     */
+    public SigningKey signingKey() {
+        long now = System.currentTimeMillis();
+        List<SigningKey> keys = snapshot.keys();
+        for (int i = keys.size() - 1; i >= 0; i--) {
+            if (keys.get(i).activatesAtMs() <= now) {
+                return keys.get(i);
+            }
+        }
+        throw new IllegalStateException("Nenhuma chave de assinatura ativa");
+    }
+
+    /**
+     * Public key for the kid of a token, or null if it is not part of the ring
+     */
+    public ECPublicKey verificationKey(String kid) {
+        SigningKey key = snapshot.byKid().get(kid);
+        if (key == null && System.currentTimeMillis() - lastReload >= MIN_RELOAD_INTERVAL_MS) {
+            // a key just created by another instance
+            reload();
+            key = snapshot.byKid().get(kid);
+        }
+        return key != null ? key.publicKey() : null;
+    }
+
+    /**
+     * JWK Set (RFC 7517) with every key that may have signed a token that is still valid,
+     * plus the next key before it starts signing
+     */
+    public Map<String, Object> getJwks() {
+        long now = System.currentTimeMillis();
+        List<SigningKey> keys = snapshot.keys();
+        List<Map<String, Object>> jwks = new ArrayList<>();
+        for (int i = 0; i < keys.size(); i++) {
+            if (isPublished(keys, i, now)) {
+                jwks.add(toJwk(keys.get(i)));
+            }
+        }
+        return Map.of("keys", jwks);
+    }
+
+    public long getJwksMaxAgeSeconds() {
+        return properties.getJwksMaxAgeSeconds();
+    }
+
+    private void maintainSafely() {
+        try {
+            reload();
+            rotateIfDue();
+            purge();
+        } catch (Exception e) {
+            log.error("Error on signing key ring maintenance", e);
+        }
+    }
+
+    private void reload() {
+        reloadLock.lock();
+        try {
+            List<SigningKey> keys = new ArrayList<>();
+            Map<String, SigningKey> byKid = new HashMap<>();
+            for (K entity : repository.findAllOrderByActivatesAt()) {
+                if (!ALGORITHM.equals(entity.getAlgorithm())) {
+                    continue;
+                }
+                SigningKey key = load(entity);
+                if (properties.isEncryptPrivateKeys() && !entity.getPrivateKey().startsWith(ENCRYPTED_PREFIX)) {
+                    // written before encryption was enabled
+                    encryptStored(entity, key);
+                }
+                keys.add(key);
+                byKid.put(key.kid(), key);
+            }
+            this.snapshot = new Snapshot(List.copyOf(keys), Map.copyOf(byKid));
+            this.lastReload = System.currentTimeMillis();
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    private void rotateIfDue() {
+        List<SigningKey> keys = snapshot.keys();
+        long now = System.currentTimeMillis();
+        if (keys.isEmpty()) {
+            create(now);
+            return;
+        }
+        long rotationMs = properties.getRotationIntervalSeconds() * 1000;
+        if (rotationMs <= 0) {
+            return;
+        }
+        long prepublishMs = properties.getPrepublishSeconds() * 1000;
+        SigningKey newest = keys.get(keys.size() - 1);
+        // instances racing here may both create a key, the later one simply wins
+        if (now >= newest.activatesAtMs() + rotationMs - prepublishMs) {
+            create(now + prepublishMs);
+        }
+    }
+
+    private void purge() {
+        List<SigningKey> keys = snapshot.keys();
+        long now = System.currentTimeMillis();
+        List<Long> expired = new ArrayList<>();
+        for (int i = 0; i < keys.size(); i++) {
+            if (!isPublished(keys, i, now)) {
+                expired.add(keys.get(i).id());
+            }
+        }
+        if (!expired.isEmpty()) {
+            repository.deleteAllByIdInBatch(expired);
+            log.info("Removed {} retired signing keys", expired.size());
+            reload();
+        }
+    }
+
+    // a key stops signing when the next one activates and is needed until the last token it signed expires
+    private boolean isPublished(List<SigningKey> keys, int index, long now) {
+        if (index == keys.size() - 1) {
+            return true;
+        }
+        return keys.get(index + 1).activatesAtMs() + tokenLifetimeMs + CLOCK_SKEW_MS > now;
+    }
+
+    private void create(long activatesAtMs) {
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+            generator.initialize(new ECGenParameterSpec("secp256r1"));
+            KeyPair pair = generator.generateKeyPair();
+
+            K entity = instantiator.instantiate();
+            entity.setKid(UUID.randomUUID().toString());
+            entity.setAlgorithm(ALGORITHM);
+            entity.setPublicKey(Base64.getEncoder().encodeToString(pair.getPublic().getEncoded()));
+            entity.setPrivateKey(properties.isEncryptPrivateKeys()
+                ? encrypt(entity.getKid(), pair.getPrivate().getEncoded())
+                : Base64.getEncoder().encodeToString(pair.getPrivate().getEncoded()));
+            entity.setActivatesAt(LocalDateTime.ofInstant(
+                Instant.ofEpochMilli(activatesAtMs), ZoneId.systemDefault()));
+            repository.save(entity);
+            log.info("Created signing key {} active from {}", entity.getKid(), entity.getActivatesAt());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Não foi possível gerar a chave de assinatura", e);
+        }
+        reload();
+    }
+
+    private SigningKey load(K entity) {
+        try {
+            KeyFactory factory = KeyFactory.getInstance("EC");
+            ECPublicKey publicKey = (ECPublicKey) factory.generatePublic(
+                new X509EncodedKeySpec(Base64.getDecoder().decode(entity.getPublicKey())));
+            String stored = entity.getPrivateKey();
+            byte[] encoded = stored.startsWith(ENCRYPTED_PREFIX)
+                ? decrypt(entity.getKid(), stored.substring(ENCRYPTED_PREFIX.length()))
+                : Base64.getDecoder().decode(stored);
+            PrivateKey privateKey = factory.generatePrivate(new PKCS8EncodedKeySpec(encoded));
+            long activatesAtMs = entity.getActivatesAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            return new SigningKey(entity.getId(), entity.getKid(), activatesAtMs, publicKey, privateKey);
+        } catch (GeneralSecurityException e) {
+            if (entity.getPrivateKey().startsWith(ENCRYPTED_PREFIX)) {
+                throw new IllegalStateException("Não foi possível decifrar a chave de assinatura " + entity.getKid()
+                    + ", confira kaiquebt.dev.auth.key-ring.encryption-key", e);
+            }
+            throw new IllegalStateException("Chave de assinatura inválida: " + entity.getKid(), e);
+        }
+    }
+
+    private void encryptStored(K entity, SigningKey key) {
+        try {
+            entity.setPrivateKey(encrypt(entity.getKid(), key.privateKey().getEncoded()));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Não foi possível cifrar a chave de assinatura: " + entity.getKid(), e);
+        }
+        repository.save(entity);
+        log.info("Encrypted the private key of signing key {}", entity.getKid());
+    }
+
+    // the kid is authenticated too, so a private key can't be moved to another row
+    private String encrypt(String kid, byte[] privateKey) throws GeneralSecurityException {
+        byte[] iv = new byte[IV_BYTES];
+        random.nextBytes(iv);
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, encryptionKey, new GCMParameterSpec(TAG_BITS, iv));
+        cipher.updateAAD(kid.getBytes(StandardCharsets.UTF_8));
+        byte[] encrypted = cipher.doFinal(privateKey);
+        return ENCRYPTED_PREFIX + Base64.getEncoder().encodeToString(
+            ByteBuffer.allocate(iv.length + encrypted.length).put(iv).put(encrypted).array());
+    }
+
+    private byte[] decrypt(String kid, String value) throws GeneralSecurityException {
+        byte[] data = Base64.getDecoder().decode(value);
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.DECRYPT_MODE, encryptionKey, new GCMParameterSpec(TAG_BITS, data, 0, IV_BYTES));
+        cipher.updateAAD(kid.getBytes(StandardCharsets.UTF_8));
+        return cipher.doFinal(data, IV_BYTES, data.length - IV_BYTES);
+    }
+
+    private static SecretKey encryptionKey(String configured, String jwtSecret) {
+        if (configured != null && !configured.isBlank()) {
+            byte[] key;
+            try {
+                key = Base64.getDecoder().decode(configured.strip());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalStateException("key-ring.encryption-key deve estar em base64", e);
+            }
+            if (key.length != 16 && key.length != 32) {
+                throw new IllegalStateException("key-ring.encryption-key deve ter 16 ou 32 bytes");
+            }
+            return new SecretKeySpec(key, "AES");
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update("signing-key-ring".getBytes(StandardCharsets.UTF_8));
+            return new SecretKeySpec(digest.digest(jwtSecret.getBytes(StandardCharsets.UTF_8)), "AES");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Map<String, Object> toJwk(SigningKey key) {
+        Map<String, Object> jwk = new LinkedHashMap<>();
+        jwk.put("kty", "EC");
+        jwk.put("crv", "P-256");
+        jwk.put("kid", key.kid());
+        jwk.put("use", "sig");
+        jwk.put("alg", ALGORITHM);
+        jwk.put("x", coordinate(key.publicKey().getW().getAffineX()));
+        jwk.put("y", coordinate(key.publicKey().getW().getAffineY()));
+        return jwk;
+    }
+
+    // fixed 32 byte big endian, BigInteger may add a sign byte or drop leading zeros
+    private static String coordinate(BigInteger value) {
+        byte[] raw = value.toByteArray();
+        byte[] out = new byte[32];
+        int length = Math.min(raw.length, 32);
+        System.arraycopy(raw, raw.length - length, out, 32 - length, length);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(out);
+    }
+}
@@ -0,0 +1,111 @@
+package kaiquebt.dev.auth.service;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Approximate per key request counter with fixed memory: two count-min sketches, one for the
+ * current window and one for the previous, combined as a sliding window. Estimates never
+ * undercount, collisions can only make a key look busier than it is. Lock free, counters
+ * are raised with CAS and a window roll over is claimed with a CAS on its slot
+ */
+public class SlidingWindowSketch {
+    private final int depth;
+    private final int mask;
+    private final long windowMs;
+    private final long seed = ThreadLocalRandom.current().nextLong();
+
+    private final AtomicIntegerArray[] counters = new AtomicIntegerArray[2];
+    // window number each slot holds, -1 while empty
+    private final AtomicLong[] slotWindow = new AtomicLong[2];
+
+    public SlidingWindowSketch(int width, int depth, long windowMs) {
+        int w = width <= 16 ? 16 : Integer.highestOneBit(width - 1) << 1;
+        this.depth = Math.max(1, depth);
+        this.mask = w - 1;
+        this.windowMs = windowMs;
+        for (int i = 0; i < 2; i++) {
+            counters[i] = new AtomicIntegerArray(w * this.depth);
+            slotWindow[i] = new AtomicLong(-1);
+        }
+    }
+
+    /**
+     * Counts one hit for key and returns the estimated hits in the last windowMs
+     */
+    public double increment(String key, long nowMs) {
+        long window = nowMs / windowMs;
+        AtomicIntegerArray current = slot(window);
+
+        long h = hash(key);
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32) | 1;
+
+        AtomicIntegerArray previous = slotWindow[(int) ((window - 1) & 1)].get() == window - 1
+            ? counters[(int) ((window - 1) & 1)]
+            : null;
+
+        int rowSize = mask + 1;
+        int currentCount = Integer.MAX_VALUE;
+        int previousCount = Integer.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            int index = row * rowSize + ((h1 + row * h2) & mask);
+            currentCount = Math.min(currentCount, current.get(index));
+            if (previous != null) {
+                previousCount = Math.min(previousCount, previous.get(index));
+            }
+        }
+
+        // conservative update: only counters below the new estimate are raised, which keeps
+        // keys that share a counter with a busy key from inheriting its whole count
+        int updated = currentCount + 1;
+        for (int row = 0; row < depth; row++) {
+            int index = row * rowSize + ((h1 + row * h2) & mask);
+            int value;
+            while ((value = current.get(index)) < updated && !current.compareAndSet(index, value, updated)) {
+                // retry
+            }
+        }
+        currentCount = updated;
+
+        if (previous == null) {
+            return currentCount;
+        }
+        double elapsed = (double) (nowMs - window * windowMs) / windowMs;
+        return currentCount + previousCount * (1 - elapsed);
+    }
+
+    public long getWindowMs() {
+        return windowMs;
+    }
+
+    private AtomicIntegerArray slot(long window) {
+        int i = (int) (window & 1);
+        long held = slotWindow[i].get();
+        // the first thread to see a new window resets the slot, a few concurrent hits
+        // may be lost while it is cleared, which only makes the limiter more lenient
+        if (held < window && slotWindow[i].compareAndSet(held, window)) {
+            AtomicIntegerArray array = counters[i];
+            for (int j = 0; j < array.length(); j++) {
+                array.set(j, 0);
+            }
+        }
+        return counters[i];
+    }
+
+    // seeded so collisions can't be planned ahead
+    private long hash(String key) {
+        long h = seed ^ 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
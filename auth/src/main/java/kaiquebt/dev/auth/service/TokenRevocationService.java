@@ -0,0 +1,211 @@
+package kaiquebt.dev.auth.service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import io.jsonwebtoken.Claims;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import kaiquebt.dev.auth.config.AuthThreads;
+import kaiquebt.dev.auth.config.TokenRevocationProperties;
+import kaiquebt.dev.auth.interfaces.ITokenRevocationInstantiator;
+import kaiquebt.dev.auth.model.BaseTokenRevocation;
+import kaiquebt.dev.auth.repository.BaseTokenRevocationRepository;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Answers whether an access token was revoked without touching the database. Revoked jtis
+ * go to a Bloom filter backed by an exact set (the filter rules out almost every token with
+ * a few bit reads, the set removes its false positives) and logout everywhere is a minimum
+ * token generation per user. Both are fed from the revocation table, polled incrementally
+ * so revocations made by other instances arrive within poll-interval-ms
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(prefix = "kaiquebt.dev.auth.revocation", name = "enabled", havingValue = "true")
+public class TokenRevocationService<R extends BaseTokenRevocation> {
+    private final BaseTokenRevocationRepository<R> repository;
+    private final ITokenRevocationInstantiator<R> instantiator;
+    private final JwtTokenProvider jwtTokenProvider;
+    private final TokenRevocationProperties properties;
+
+    // jti -> expiration in epoch millis
+    private final Map<String, Long> revokedJtis = new ConcurrentHashMap<>();
+    private final Map<Long, GenerationFloor> minGenerations = new ConcurrentHashMap<>();
+    private volatile BloomFilter bloom;
+    private volatile int bloomCapacity;
+
+    private final ScheduledExecutorService scheduler;
+    private LocalDateTime lastSeen = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private long lastPurge = System.currentTimeMillis();
+
+    private record GenerationFloor(int minGeneration, long expiresAtMs) {}
+
+    public TokenRevocationService(
+        BaseTokenRevocationRepository<R> repository,
+        ITokenRevocationInstantiator<R> instantiator,
+        JwtTokenProvider jwtTokenProvider,
+        TokenRevocationProperties properties,
+        AuthThreads authThreads
+    ) {
+        this.repository = repository;
+        this.instantiator = instantiator;
+        this.jwtTokenProvider = jwtTokenProvider;
+        this.properties = properties;
+        this.bloomCapacity = properties.getExpectedRevocations();
+        this.bloom = new BloomFilter(bloomCapacity, properties.getFalsePositiveRate());
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(authThreads.threadFactory("token-revocation-poller"));
+    }
+
+    @PostConstruct
+    void start() {
+        poll();
+        log.info("Token revocation loaded: {} jtis, {} users", revokedJtis.size(), minGenerations.size());
+        scheduler.scheduleWithFixedDelay(this::pollSafely,
+            properties.getPollIntervalMs(), properties.getPollIntervalMs(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        scheduler.shutdownNow();
+    }
+
+    public boolean isRevoked(Claims claims) {
+        if (!minGenerations.isEmpty()) {
+            Long userId = claims.get("userId", Long.class);
+            GenerationFloor floor = userId != null ? minGenerations.get(userId) : null;
+            if (floor != null) {
+                Integer generation = claims.get("gen", Integer.class);
+                if ((generation != null ? generation : 0) < floor.minGeneration()) {
+                    return true;
+                }
+            }
+        }
+
+        String jti = claims.getId();
+        return jti != null && bloom.mightContain(jti) && revokedJtis.containsKey(jti);
+    }
+
+    /**
+     * Revokes a single access token until it expires
+     */
+    public void revoke(String jti, Date expiresAt) {
+        if (jti == null || expiresAt == null || expiresAt.getTime() <= System.currentTimeMillis()) {
+            return;
+        }
+        R revocation = instantiator.instantiate();
+        revocation.setJti(jti);
+        revocation.setExpiresAt(LocalDateTime.ofInstant(expiresAt.toInstant(), ZoneId.systemDefault()));
+        repository.save(revocation);
+        applyJti(jti, expiresAt.getTime());
+    }
+
+    /**
+     * Revokes every access token of the user whose generation is below minGeneration. The row
+     * is kept for one access token lifetime, after that all those tokens have expired
+     */
+    public void revokeGeneration(Long userId, int minGeneration) {
+        R revocation = instantiator.instantiate();
+        revocation.setUserId(userId);
+        revocation.setMinGeneration(minGeneration);
+        revocation.setExpiresAt(LocalDateTime.now().plusNanos(jwtTokenProvider.getExpirationInMs() * 1_000_000));
+        repository.save(revocation);
+        applyGeneration(userId, minGeneration, toMillis(revocation.getExpiresAt()));
+    }
+
+    public int getRevokedJtiCount() {
+        return revokedJtis.size();
+    }
+
+    public int getRevokedUserCount() {
+        return minGenerations.size();
+    }
+
+    private void pollSafely() {
+        try {
+            poll();
+            long now = System.currentTimeMillis();
+            if (now - lastPurge >= properties.getPurgeIntervalMs()) {
+                lastPurge = now;
+                dropExpired(now);
+                repository.deleteExpired(LocalDateTime.now());
+            }
+        } catch (Exception e) {
+            log.error("Erro ao atualizar revogações de token", e);
+        }
+    }
+
+    // only called from the constructor thread and then the poller thread
+    private void poll() {
+        LocalDateTime since = lastSeen.minusNanos(properties.getLookbackMs() * 1_000_000);
+        while (true) {
+            List<R> rows = repository.findActiveSince(since, LocalDateTime.now(), Limit.of(properties.getBatchSize()));
+            for (R row : rows) {
+                long expiresAtMs = toMillis(row.getExpiresAt());
+                if (row.getJti() != null) {
+                    applyJti(row.getJti(), expiresAtMs);
+                }
+                if (row.getUserId() != null && row.getMinGeneration() != null) {
+                    applyGeneration(row.getUserId(), row.getMinGeneration(), expiresAtMs);
+                }
+                if (row.getCreatedAt().isAfter(lastSeen)) {
+                    lastSeen = row.getCreatedAt();
+                }
+            }
+            // a full page means there may be more, unless the page did not move forward
+            if (rows.size() < properties.getBatchSize() || !lastSeen.isAfter(since)) {
+                return;
+            }
+            since = lastSeen;
+        }
+    }
+
+    private void applyJti(String jti, long expiresAtMs) {
+        if (revokedJtis.put(jti, expiresAtMs) == null) {
+            bloom.add(jti);
+            if (revokedJtis.size() > bloomCapacity) {
+                rebuildBloom(bloomCapacity * 2);
+            }
+        }
+    }
+
+    private void applyGeneration(Long userId, int minGeneration, long expiresAtMs) {
+        minGenerations.merge(userId, new GenerationFloor(minGeneration, expiresAtMs),
+            (current, added) -> added.minGeneration() > current.minGeneration()
+                ? added
+                : new GenerationFloor(current.minGeneration(), Math.max(current.expiresAtMs(), added.expiresAtMs())));
+    }
+
+    private void dropExpired(long now) {
+        boolean removed = revokedJtis.values().removeIf(expiresAt -> expiresAt <= now);
+        minGenerations.values().removeIf(floor -> floor.expiresAtMs() <= now);
+        // a Bloom filter can't forget keys, build a new one without the expired jtis
+        if (removed) {
+            rebuildBloom(Math.max(properties.getExpectedRevocations(), revokedJtis.size() * 2));
+        }
+    }
+
+    private synchronized void rebuildBloom(int capacity) {
+        BloomFilter rebuilt = new BloomFilter(capacity, properties.getFalsePositiveRate());
+        revokedJtis.keySet().forEach(rebuilt::add);
+        bloomCapacity = capacity;
+        bloom = rebuilt;
+        // jtis added while the new filter was filled
+        revokedJtis.keySet().forEach(rebuilt::add);
+    }
+
+    private static long toMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
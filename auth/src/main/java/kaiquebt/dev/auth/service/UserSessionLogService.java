@@ -1,28 +1,68 @@
 package kaiquebt.dev.auth.service;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import kaiquebt.dev.auth.dto.SessionHistoryDto;
+import kaiquebt.dev.auth.dto.SessionHistoryDto.ISessionHistoryDto;
+import kaiquebt.dev.auth.dto.SessionHistoryExportFormat;
+import kaiquebt.dev.auth.dto.SessionHistorySlice;
 import kaiquebt.dev.auth.model.BaseUser;
 import kaiquebt.dev.auth.model.BaseUserSessionLog;
 import kaiquebt.dev.auth.model.UserSessionOrigin;
 import kaiquebt.dev.auth.repository.BaseUserRepository;
 import kaiquebt.dev.auth.repository.BaseUserSessionLogRepository;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class UserSessionLogService<U extends BaseUser, L extends BaseUserSessionLog<U>> {
+    // bounds used when the caller does not filter by date, keeps the keyset query free of null checks
+    private static final LocalDateTime MIN_DATE = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime MAX_DATE = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
     private final BaseUserSessionLogRepository<L> baseUserSessionLogRepository;
     private final RequestContextService requestContextService;
+    // null unless kaiquebt.dev.auth.session-log.async.enabled is true
+    private final AsyncSessionLogWriter asyncWriter;
+    private final ObjectMapper objectMapper;
+    private final AuthMetrics authMetrics;
+
+    public UserSessionLogService(
+        BaseUserSessionLogRepository<L> baseUserSessionLogRepository,
+        RequestContextService requestContextService,
+        ObjectProvider<AsyncSessionLogWriter> asyncWriterProvider,
+        ObjectMapper objectMapper,
+        AuthMetrics authMetrics
+    ) {
+        this.baseUserSessionLogRepository = baseUserSessionLogRepository;
+        this.requestContextService = requestContextService;
+        this.asyncWriter = asyncWriterProvider.getIfAvailable();
+        this.objectMapper = objectMapper;
+        this.authMetrics = authMetrics;
+    }
     
     @PersistenceContext
     private EntityManager entityManager;
@@ -35,7 +75,7 @@ public class UserSessionLogService<U extends BaseUser, L extends BaseUserSession
         log.safeSetSessionOrigin(UserSessionOrigin.LOGIN);
         log.setIpAddress(requestContextService.getClientIp());
         log.setUserAgent(requestContextService.getUserAgent());
-        baseUserSessionLogRepository.save(log);
+        persist(log);
     }
 
     public void registerRefreshSession(
@@ -46,7 +86,7 @@ public class UserSessionLogService<U extends BaseUser, L extends BaseUserSession
         log.safeSetSessionOrigin(UserSessionOrigin.REFRESH);
         log.setIpAddress(requestContextService.getClientIp());
         log.setUserAgent(requestContextService.getUserAgent());
-        baseUserSessionLogRepository.save(log);
+        persist(log);
     }
 
     public void registerImpersonatedSession(
@@ -59,7 +99,7 @@ public class UserSessionLogService<U extends BaseUser, L extends BaseUserSession
         log.safeSetSessionOrigin(UserSessionOrigin.IMPERSONATING);
         log.setIpAddress(requestContextService.getClientIp());
         log.setUserAgent(requestContextService.getUserAgent());
-        baseUserSessionLogRepository.save(log);
+        persist(log);
     }
 
     public void registerImpersonatedRefreshSession(
@@ -71,7 +111,17 @@ public class UserSessionLogService<U extends BaseUser, L extends BaseUserSession
         log.safeSetSessionOrigin(UserSessionOrigin.REFRESH);
         log.setIpAddress(requestContextService.getClientIp());
         log.setUserAgent(requestContextService.getUserAgent());
-        baseUserSessionLogRepository.save(log);
+        persist(log);
+    }
+
+    private void persist(L log) {
+        authMetrics.run("session-log.register", () -> {
+            if (asyncWriter != null) {
+                asyncWriter.submit(log);
+                return;
+            }
+            baseUserSessionLogRepository.save(log);
+        });
     }
 
     public Page<SessionHistoryDto> getSessionHistory(
@@ -94,5 +144,138 @@ public class UserSessionLogService<U extends BaseUser, L extends BaseUserSession
         ).map(SessionHistoryDto::new);
     }
 
+    /**
+     * Cursor based alternative to getSessionHistory. Runs no count query and does not
+     * get slower on deep pages; pass null as cursor for the first slice
+     */
+    public SessionHistorySlice getSessionHistorySlice(
+            Long userId,
+            String cursor,
+            Integer size,
+            LocalDateTime startDate,
+            LocalDateTime endDate
+        ) {
+        if (size == null || size < 1) {
+            size = 20;
+        }
+        if (size > 50) {
+            size = 50;
+        }
+
+        LocalDateTime cursorCreatedAt = MAX_DATE;
+        Long cursorId = Long.MAX_VALUE;
+        if (cursor != null && !cursor.isBlank()) {
+            String[] parts = decodeCursor(cursor);
+            cursorCreatedAt = LocalDateTime.parse(parts[0]);
+            cursorId = Long.valueOf(parts[1]);
+        }
+
+        // one extra row tells whether there is a next slice
+        List<ISessionHistoryDto> rows = this.baseUserSessionLogRepository.findProjectedAfter(
+            userId,
+            startDate != null ? startDate : MIN_DATE,
+            endDate != null ? endDate : MAX_DATE,
+            cursorCreatedAt,
+            cursorId,
+            Limit.of(size + 1)
+        );
+
+        String nextCursor = null;
+        if (rows.size() > size) {
+            rows = rows.subList(0, size);
+            // built from the projection, the dto only keeps createdAt in millis
+            ISessionHistoryDto last = rows.get(size - 1);
+            nextCursor = encodeCursor(last.getCreatedAt(), last.getId());
+        }
+
+        return new SessionHistorySlice(rows.stream().map(SessionHistoryDto::new).toList(), nextCursor);
+    }
+
+    /**
+     * Writes the whole history of the user to out, newest first, reading the rows through a
+     * forward only cursor. Memory use does not depend on the number of logs. Does not close out
+     */
+    @Transactional(readOnly = true)
+    public long exportSessionHistory(
+            Long userId,
+            LocalDateTime startDate,
+            LocalDateTime endDate,
+            SessionHistoryExportFormat format,
+            OutputStream out
+        ) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        long count = 0;
+
+        try (Stream<ISessionHistoryDto> rows = this.baseUserSessionLogRepository.streamProjected(
+            userId,
+            startDate != null ? startDate : MIN_DATE,
+            endDate != null ? endDate : MAX_DATE
+        )) {
+            if (format == SessionHistoryExportFormat.CSV) {
+                writer.write("id,origin,ipAddress,userAgent,performedBy,createdAt\n");
+            }
+
+            Iterator<ISessionHistoryDto> it = rows.iterator();
+            while (it.hasNext()) {
+                SessionHistoryDto dto = new SessionHistoryDto(it.next());
+                if (format == SessionHistoryExportFormat.CSV) {
+                    writer.write(csv(dto.getId()));
+                    writer.write(',');
+                    writer.write(csv(dto.getOrigin()));
+                    writer.write(',');
+                    writer.write(csv(dto.getIpAddress()));
+                    writer.write(',');
+                    writer.write(csv(dto.getUserAgent()));
+                    writer.write(',');
+                    writer.write(csv(dto.getPerformedBy()));
+                    writer.write(',');
+                    writer.write(csv(dto.getCreatedAt()));
+                } else {
+                    writer.write(objectMapper.writeValueAsString(dto));
+                }
+                writer.write('\n');
+                count++;
+            }
+        }
+
+        writer.flush();
+        return count;
+    }
+
+    private static String csv(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String str = value.toString();
+        // user agent is client controlled, keep spreadsheets from reading it as a formula
+        if (!str.isEmpty() && "=+-@".indexOf(str.charAt(0)) >= 0) {
+            str = "'" + str;
+        }
+        if (str.indexOf(',') >= 0 || str.indexOf('"') >= 0 || str.indexOf('\n') >= 0 || str.indexOf('\r') >= 0) {
+            return '"' + str.replace("\"", "\"\"") + '"';
+        }
+        return str;
+    }
+
+    private static String encodeCursor(LocalDateTime createdAt, Long id) {
+        String raw = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Cursor inválido");
+            }
+            LocalDateTime.parse(parts[0]);
+            Long.valueOf(parts[1]);
+            return parts;
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Cursor inválido");
+        }
+    }
+
 
 }
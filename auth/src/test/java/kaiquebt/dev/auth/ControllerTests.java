@@ -0,0 +1,60 @@
+package kaiquebt.dev.auth;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.BadCredentialsException;
+
+import kaiquebt.dev.auth.Controller.StandardResponse;
+import kaiquebt.dev.auth.dto.JwtAuthResponse;
+import kaiquebt.dev.auth.dto.LoginDto;
+import kaiquebt.dev.auth.service.BaseAuthService;
+import kaiquebt.dev.auth.service.LoginRejectedException;
+import kaiquebt.dev.auth.service.UserSessionLogService;
+
+class ControllerTests {
+
+    private BaseAuthService<?, ?> authService;
+    private Controller controller;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setup() {
+        authService = mock(BaseAuthService.class);
+        controller = new Controller(authService, mock(UserSessionLogService.class), mock(ObjectProvider.class));
+    }
+
+    @Test
+    void loginRejectedByTheLimiterIsServiceUnavailable() {
+        when(authService.loginWithTokens(any())).thenThrow(new LoginRejectedException("Fila de login cheia"));
+
+        ResponseEntity<StandardResponse<JwtAuthResponse>> response = controller.login(login());
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+        assertEquals("1", response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertFalse(response.getBody().isSuccess());
+        assertNull(response.getBody().getData());
+    }
+
+    @Test
+    void wrongPasswordIsStillUnauthorized() {
+        when(authService.loginWithTokens(any())).thenThrow(new BadCredentialsException("Bad credentials"));
+
+        ResponseEntity<StandardResponse<JwtAuthResponse>> response = controller.login(login());
+
+        assertEquals(HttpStatus.UNAUTHORIZED, response.getStatusCode());
+        assertNull(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertEquals("Credenciais inválidas", response.getBody().getMessage());
+    }
+
+    private static LoginDto login() {
+        return new LoginDto("kaique", "Senha@123");
+    }
+}
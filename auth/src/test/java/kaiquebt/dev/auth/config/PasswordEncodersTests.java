@@ -0,0 +1,84 @@
+package kaiquebt.dev.auth.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder.SecretKeyFactoryAlgorithm;
+
+import kaiquebt.dev.auth.config.PasswordHashingProperties.Algorithm;
+
+class PasswordEncodersTests {
+
+    private static final String PASSWORD = "Senha@123";
+
+    @Test
+    void pbkdf2HashSurvivesAnIterationChange() {
+        String hash = pbkdf2(1000).encode(PASSWORD);
+        assertTrue(hash.startsWith("{pbkdf2}1000$"));
+
+        PasswordEncoder raised = pbkdf2(2000);
+        assertTrue(raised.matches(PASSWORD, hash), "Hashes antigos devem continuar válidos com outra contagem");
+        assertFalse(raised.matches("Senha@124", hash));
+        assertTrue(raised.upgradeEncoding(hash), "Hashes com menos iterações devem ser refeitos");
+
+        String rehashed = raised.encode(PASSWORD);
+        assertFalse(raised.upgradeEncoding(rehashed));
+        assertTrue(pbkdf2(1000).matches(PASSWORD, rehashed), "Baixar a contagem não invalida hashes novos");
+        assertFalse(pbkdf2(1000).upgradeEncoding(rehashed));
+    }
+
+    @Test
+    void pbkdf2HashSurvivesCalibration() {
+        String hash = pbkdf2(1000).encode(PASSWORD);
+
+        PasswordHashingProperties props = properties(Algorithm.PBKDF2, 1000);
+        props.setCalibrate(true);
+        props.setCalibrationTargetMs(20);
+        PasswordEncoder calibrated = PasswordEncoders.create(props);
+
+        assertTrue(calibrated.matches(PASSWORD, hash));
+        assertTrue(calibrated.matches(PASSWORD, calibrated.encode(PASSWORD)));
+    }
+
+    @Test
+    void pbkdf2HashWithoutIterationsIsReadAtTheConfiguredCount() {
+        Pbkdf2PasswordEncoder plain = new Pbkdf2PasswordEncoder("", 16, 1000, SecretKeyFactoryAlgorithm.PBKDF2WithHmacSHA256);
+        String hash = "{pbkdf2}" + plain.encode(PASSWORD);
+
+        PasswordEncoder encoder = pbkdf2(1000);
+        assertTrue(encoder.matches(PASSWORD, hash));
+        assertTrue(encoder.upgradeEncoding(hash), "Hashes sem a contagem devem ganhá-la no próximo login");
+    }
+
+    @Test
+    void otherAlgorithmsAndLowerCostsAreUpgraded() {
+        PasswordEncoder encoder = PasswordEncoders.create(properties(Algorithm.PBKDF2, 1000));
+        String bcrypt = "{bcrypt}" + new BCryptPasswordEncoder(4).encode(PASSWORD);
+        String legacy = new BCryptPasswordEncoder(4).encode(PASSWORD);
+
+        assertTrue(encoder.matches(PASSWORD, bcrypt));
+        assertTrue(encoder.upgradeEncoding(bcrypt));
+        assertTrue(encoder.matches(PASSWORD, legacy), "Hashes sem prefixo são BCrypt");
+        assertTrue(encoder.upgradeEncoding(legacy));
+
+        PasswordHashingProperties props = properties(Algorithm.BCRYPT, 1000);
+        props.setBcryptStrength(5);
+        PasswordEncoder stronger = PasswordEncoders.create(props);
+        assertTrue(stronger.upgradeEncoding(bcrypt), "Hashes com custo menor devem ser refeitos");
+        assertFalse(stronger.upgradeEncoding(stronger.encode(PASSWORD)));
+    }
+
+    private static PasswordEncoder pbkdf2(int iterations) {
+        return PasswordEncoders.create(properties(Algorithm.PBKDF2, iterations));
+    }
+
+    private static PasswordHashingProperties properties(Algorithm algorithm, int pbkdf2Iterations) {
+        PasswordHashingProperties props = new PasswordHashingProperties();
+        props.setAlgorithm(algorithm);
+        props.setPbkdf2Iterations(pbkdf2Iterations);
+        return props;
+    }
+}
@@ -0,0 +1,193 @@
+package kaiquebt.dev.auth.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import kaiquebt.dev.auth.config.MailConfiguration.CustomMailSenderWrapper;
+
+class PooledJavaMailSenderTests {
+
+    private MailPoolProperties properties;
+    // the transports the sender opens next, in order
+    private Deque<Transport> transports;
+    private List<Transport> opened;
+    private PooledJavaMailSender sender;
+
+    @BeforeEach
+    void setup() {
+        properties = new MailPoolProperties();
+        properties.setMaxConnections(1);
+        properties.setBorrowTimeoutMs(100);
+        properties.setValidateAfterIdleMs(60_000);
+        transports = new ArrayDeque<>();
+        opened = new ArrayList<>();
+
+        sender = new PooledJavaMailSender(properties) {
+            @Override
+            protected Transport getTransport(Session session) {
+                Transport transport = transports.poll();
+                assertNotNull(transport, "Nenhuma conexão a mais era esperada");
+                opened.add(transport);
+                return transport;
+            }
+        };
+        sender.setHost("localhost");
+    }
+
+    @Test
+    void reusesTheConnection() throws Exception {
+        Transport transport = connection();
+        transports.add(transport);
+
+        sender.send(message(), message(), message());
+        sender.send(message());
+
+        assertEquals(1, opened.size());
+        verify(transport, times(1)).connect(anyString(), anyInt(), any(), any());
+        verify(transport, times(4)).sendMessage(any(), any());
+        // no NOOP before validate-after-idle-ms
+        verify(transport, never()).isConnected();
+        verify(transport, never()).close();
+    }
+
+    @Test
+    void validatesIdleConnectionWithNoop() throws Exception {
+        properties.setValidateAfterIdleMs(0);
+        Transport stale = connection();
+        Transport fresh = connection();
+        transports.add(stale);
+        transports.add(fresh);
+
+        sender.send(message());
+        Thread.sleep(5);
+        sender.send(message());
+        assertEquals(1, opened.size(), "Conexão que responde ao NOOP deve ser reutilizada");
+
+        when(stale.isConnected()).thenReturn(false);
+        Thread.sleep(5);
+        sender.send(message());
+
+        assertEquals(2, opened.size());
+        verify(stale).close();
+        verify(stale, times(2)).sendMessage(any(), any());
+        verify(fresh, times(1)).sendMessage(any(), any());
+    }
+
+    @Test
+    void reconnectsAndRetriesWhenTheConnectionWasDropped() throws Exception {
+        Transport dropped = connection();
+        doNothing().doThrow(new MessagingException("connection reset")).when(dropped).sendMessage(any(), any());
+        Transport reconnected = connection();
+        transports.add(dropped);
+        transports.add(reconnected);
+
+        sender.send(message());
+        when(dropped.isConnected()).thenReturn(false);
+        sender.send(message());
+        sender.send(message());
+
+        assertEquals(2, opened.size());
+        verify(dropped).close();
+        verify(reconnected, times(2)).sendMessage(any(), any());
+    }
+
+    @Test
+    void keepsTheConnectionWhenTheServerRejectsAMessage() throws Exception {
+        Transport transport = connection();
+        doThrow(new MessagingException("550 mailbox unavailable")).doNothing().when(transport).sendMessage(any(), any());
+        transports.add(transport);
+
+        assertThrows(MailSendException.class, () -> sender.send(message()));
+        sender.send(message());
+
+        assertEquals(1, opened.size());
+        verify(transport, never()).close();
+    }
+
+    @Test
+    void releasesThePermitWhenSendingFails() throws Exception {
+        // connect fails
+        Transport refused = connection();
+        doThrow(new MessagingException("connection refused")).when(refused).connect(anyString(), anyInt(), any(), any());
+        // drops the message and the reconnect fails too
+        Transport dropped = connection();
+        doThrow(new MessagingException("connection reset")).when(dropped).sendMessage(any(), any());
+        when(dropped.isConnected()).thenReturn(false);
+        Transport refusedAgain = connection();
+        doThrow(new MessagingException("connection refused")).when(refusedAgain).connect(anyString(), anyInt(), any(), any());
+        Transport working = connection();
+        transports.add(refused);
+        transports.add(dropped);
+        transports.add(refusedAgain);
+        transports.add(working);
+
+        MailSendException connectFailure = assertThrows(MailSendException.class, () -> sender.send(message()));
+        assertFalse(connectFailure.getMessage().contains("No SMTP connection available"));
+        assertThrows(MailSendException.class, () -> sender.send(message()));
+
+        // max-connections is 1, this would wait borrow-timeout-ms and fail if a permit leaked
+        sender.send(message());
+
+        assertEquals(4, opened.size());
+        verify(dropped, atLeastOnce()).close();
+        verify(working).sendMessage(any(), any());
+    }
+
+    @Test
+    void factoryPoolsTheSpringMailSenderOnce() {
+        JavaMailSenderImpl springMailSender = new JavaMailSenderImpl();
+        springMailSender.setHost("smtp.example.com");
+        springMailSender.setPort(2525);
+        springMailSender.setUsername("auth");
+        properties.setEnabled(true);
+
+        MailSenderFactory factory = new MailSenderFactory();
+        ReflectionTestUtils.setField(factory, "defaultMailSender", springMailSender);
+        ReflectionTestUtils.setField(factory, "customMailSenderWrapper", new CustomMailSenderWrapper());
+        ReflectionTestUtils.setField(factory, "mailPoolProperties", properties);
+
+        JavaMailSender pooled = factory.getMailSender();
+        assertInstanceOf(PooledJavaMailSender.class, pooled);
+        assertSame(pooled, factory.getMailSender());
+        assertEquals("smtp.example.com", ((JavaMailSenderImpl) pooled).getHost());
+        assertEquals(2525, ((JavaMailSenderImpl) pooled).getPort());
+        assertEquals("auth", ((JavaMailSenderImpl) pooled).getUsername());
+
+        properties.setEnabled(false);
+        assertSame(springMailSender, factory.getMailSender());
+        factory.destroy();
+    }
+
+    private Transport connection() {
+        Transport transport = mock(Transport.class);
+        when(transport.isConnected()).thenReturn(true);
+        return transport;
+    }
+
+    private MimeMessage message() throws MessagingException {
+        MimeMessage message = new MimeMessage(sender.getSession());
+        message.setRecipients(MimeMessage.RecipientType.TO, "kaiq@gmail.com");
+        message.setSubject("Confirme seu email");
+        message.setText("<p>token</p>", "UTF-8", "html");
+        return message;
+    }
+}
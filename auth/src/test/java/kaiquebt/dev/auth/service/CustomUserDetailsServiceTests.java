@@ -0,0 +1,116 @@
+package kaiquebt.dev.auth.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import kaiquebt.dev.auth.config.PasswordHashingProperties;
+import kaiquebt.dev.auth.config.UserDetailsCacheProperties;
+import kaiquebt.dev.auth.model.BaseUser;
+import kaiquebt.dev.auth.model.BaseUser.RoleType;
+import kaiquebt.dev.auth.repository.BaseUserRepository;
+
+class CustomUserDetailsServiceTests {
+
+    private BaseUserRepository<BaseUser> repository;
+    private CustomUserDetailsService<BaseUser> service;
+
+    // the row as the database has it, every find returns a new entity like Hibernate would
+    private Set<RoleType> storedRoles;
+    private String storedPassword;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setup() {
+        repository = mock(BaseUserRepository.class);
+        UserDetailsCacheProperties cacheProperties = new UserDetailsCacheProperties();
+        cacheProperties.setEnabled(true);
+        service = new CustomUserDetailsService<>(repository, cacheProperties, new PasswordHashingProperties());
+
+        storedRoles = Set.of(RoleType.ROLE_USER);
+        storedPassword = "{bcrypt}antigo";
+        when(repository.findByUsernameOrEmail(anyString(), anyString())).thenAnswer(invocation -> Optional.of(row()));
+    }
+
+    @Test
+    void cachedUserIsCopiedForEachCaller() {
+        CustomUserDetails first = (CustomUserDetails) service.loadUserByUsername("kaique");
+        first.getUser().setPassword("alterada");
+        first.getUser().getRoles().add(RoleType.ROLE_ADMIN);
+        first.getUser().getEmailConfirmation().setConfirmed(false);
+
+        CustomUserDetails second = (CustomUserDetails) service.loadUserByUsername("kaique");
+        CustomUserDetails third = (CustomUserDetails) service.loadUserByUsername("kaiq@gmail.com");
+
+        verify(repository, times(1)).findByUsernameOrEmail(anyString(), anyString());
+        assertNotSame(second.getUser(), third.getUser());
+        assertEquals(storedPassword, second.getUser().getPassword(), "Alterações de um chamador não devem chegar ao cache");
+        assertEquals(Set.of(RoleType.ROLE_USER), second.getUser().getRoles());
+        assertTrue(second.getUser().getEmailConfirmation().getConfirmed());
+    }
+
+    @Test
+    void roleChangeIsVisibleAfterEvict() {
+        BaseUser user = ((CustomUserDetails) service.loadUserByUsername("kaique")).getUser();
+
+        storedRoles = Set.of(RoleType.ROLE_USER, RoleType.ROLE_ADMIN);
+        assertFalse(service.loadUserByUsername("kaiq@gmail.com").getAuthorities()
+                .contains(new SimpleGrantedAuthority("ROLE_ADMIN")), "Sem evict o cache ainda responde");
+
+        service.evict(user);
+
+        assertTrue(service.loadUserByUsername("kaique").getAuthorities().contains(new SimpleGrantedAuthority("ROLE_ADMIN")));
+        assertTrue(service.loadUserByUsername("kaiq@gmail.com").getAuthorities().contains(new SimpleGrantedAuthority("ROLE_ADMIN")));
+    }
+
+    @Test
+    void passwordUpgradeEvictsTheUser() {
+        when(repository.updatePasswordHash(eq(1L), eq("{bcrypt}antigo"), any())).thenAnswer(invocation -> {
+            storedPassword = invocation.getArgument(2);
+            return 1;
+        });
+        CustomUserDetails details = (CustomUserDetails) service.loadUserByUsername("kaique");
+
+        service.updatePassword(details, "{argon2}novo");
+
+        assertEquals("{argon2}novo", service.loadUserByUsername("kaique").getPassword());
+        assertEquals("{argon2}novo", service.loadUserByUsername("kaiq@gmail.com").getPassword());
+    }
+
+    @Test
+    void loadOverlappingAnEvictIsNotCached() {
+        // the change commits and evicts while the old row is being read
+        when(repository.findByUsernameOrEmail(anyString(), anyString())).thenAnswer(invocation -> {
+            BaseUser old = row();
+            storedRoles = Set.of(RoleType.ROLE_BANNED);
+            service.evict(old);
+            return Optional.of(old);
+        }).thenAnswer(invocation -> Optional.of(row()));
+
+        assertEquals(Set.of(RoleType.ROLE_USER), ((CustomUserDetails) service.loadUserByUsername("kaique")).getUser().getRoles());
+        assertEquals(Set.of(RoleType.ROLE_BANNED), ((CustomUserDetails) service.loadUserByUsername("kaique")).getUser().getRoles(),
+                "A linha lida antes da alteração não deve ficar no cache");
+        verify(repository, times(2)).findByUsernameOrEmail(anyString(), anyString());
+    }
+
+    private BaseUser row() {
+        BaseUser user = BaseUser.builder()
+                .id(1L)
+                .username("kaique")
+                .email("kaiq@gmail.com")
+                .password(storedPassword)
+                .roles(new HashSet<>(storedRoles))
+                .build();
+        user.getEmailConfirmation().setConfirmed(true);
+        return user;
+    }
+}
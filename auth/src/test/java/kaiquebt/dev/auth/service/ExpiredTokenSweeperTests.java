@@ -0,0 +1,99 @@
+package kaiquebt.dev.auth.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.Limit;
+import org.springframework.mock.env.MockEnvironment;
+
+import kaiquebt.dev.auth.config.AuthMetricsProperties;
+import kaiquebt.dev.auth.config.AuthThreads;
+import kaiquebt.dev.auth.config.TokenSweeperProperties;
+import kaiquebt.dev.auth.model.BaseUser;
+import kaiquebt.dev.auth.repository.BaseUserRepository;
+
+class ExpiredTokenSweeperTests {
+
+    private BaseUserRepository<BaseUser> repository;
+    private ExpiredTokenSweeper<BaseUser> sweeper;
+
+    // ids with an expired email confirmation token
+    private final TreeSet<Long> expired = new TreeSet<>();
+    // a token issued again between the select and the update, the update keeps it
+    private final TreeSet<Long> reissued = new TreeSet<>();
+    private final List<Long> afterIds = new ArrayList<>();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setup() {
+        repository = mock(BaseUserRepository.class);
+        when(repository.findExpiredEmailConfirmationIds(any(), any(), any())).thenAnswer(invocation -> {
+            Long afterId = invocation.getArgument(1);
+            Limit limit = invocation.getArgument(2);
+            afterIds.add(afterId);
+            return expired.tailSet(afterId, false).stream().limit(limit.max()).toList();
+        });
+        when(repository.clearExpiredEmailConfirmationTokens(anyCollection(), any())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            int cleared = 0;
+            for (Long id : ids) {
+                if (!reissued.contains(id) && expired.remove(id)) {
+                    cleared++;
+                }
+            }
+            return cleared;
+        });
+        when(repository.findExpiredPasswordRecoveryIds(any(), any(), any())).thenReturn(List.of());
+
+        sweeper = sweeper(30_000);
+    }
+
+    @Test
+    void chunksContinueAfterTheLastId() {
+        for (long id = 1; id <= 7; id++) {
+            expired.add(id);
+        }
+        reissued.add(3L);
+
+        ExpiredTokenSweeper.SweepResult result = sweeper.sweep();
+
+        assertTrue(result.complete());
+        assertEquals(6, result.emailConfirmations());
+        assertEquals(List.of(0L, 2L, 4L, 6L), afterIds, "Cada lote deve começar depois do último id do anterior");
+        assertEquals(6, sweeper.getClearedEmailConfirmationCount());
+    }
+
+    @Test
+    void stopsWhenTheBudgetIsSpent() {
+        for (long id = 1; id <= 7; id++) {
+            expired.add(id);
+        }
+
+        ExpiredTokenSweeper.SweepResult result = sweeper(0).sweep();
+
+        assertFalse(result.complete());
+        assertEquals(0, result.emailConfirmations());
+        verify(repository, never()).clearExpiredEmailConfirmationTokens(anyCollection(), any());
+    }
+
+    @SuppressWarnings("unchecked")
+    private ExpiredTokenSweeper<BaseUser> sweeper(long timeBudgetMs) {
+        TokenSweeperProperties properties = new TokenSweeperProperties();
+        properties.setChunkSize(2);
+        properties.setPauseMs(0);
+        properties.setTimeBudgetMs(timeBudgetMs);
+        return new ExpiredTokenSweeper<>(repository, properties,
+                new AuthMetrics(new AuthMetricsProperties(), mock(ObjectProvider.class)),
+                new AuthThreads(new MockEnvironment()));
+    }
+}
@@ -0,0 +1,55 @@
+package kaiquebt.dev.auth.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import kaiquebt.dev.auth.config.AuthMetricsProperties;
+import kaiquebt.dev.auth.config.KeyRingProperties;
+import kaiquebt.dev.auth.model.BaseUser;
+import kaiquebt.dev.auth.model.BaseUser.RoleType;
+
+class JwtTokenProviderTests {
+
+    private static final String JWT_SECRET = "daf66e01593f61a15b857cf433aae03a005812b31234e149036bcc8dee755dbb";
+
+    @Test
+    void hmacTokensFollowKeyRingProperties() {
+        String hmacToken = provider(new KeyRingProperties()).generateToken(user()).token;
+
+        KeyRingProperties keyRing = new KeyRingProperties();
+        keyRing.setEnabled(true);
+        JwtTokenProvider provider = provider(keyRing);
+        assertTrue(provider.validateToken(hmacToken), "Tokens HMAC são aceitos durante a migração");
+        assertEquals(42L, provider.parseAndValidate(hmacToken).get("userId", Long.class));
+
+        keyRing.setAcceptHmacTokens(false);
+        assertThrows(IllegalArgumentException.class, () -> provider.validateToken(hmacToken),
+                "accept-hmac-tokens deve ser lido de KeyRingProperties");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static JwtTokenProvider provider(KeyRingProperties keyRing) {
+        JwtTokenProvider provider = new JwtTokenProvider(mock(ObjectProvider.class), keyRing,
+                new AuthMetrics(new AuthMetricsProperties(), mock(ObjectProvider.class)));
+        ReflectionTestUtils.setField(provider, "jwtSecret", JWT_SECRET);
+        ReflectionTestUtils.setField(provider, "jwtExpirationInMs", 3_600_000L);
+        ReflectionTestUtils.invokeMethod(provider, "init");
+        return provider;
+    }
+
+    private static BaseUser user() {
+        return BaseUser.builder()
+                .id(42L)
+                .username("kaique")
+                .email("kaiq@gmail.com")
+                .roles(Set.of(RoleType.ROLE_USER))
+                .tokenGeneration(0)
+                .build();
+    }
+}
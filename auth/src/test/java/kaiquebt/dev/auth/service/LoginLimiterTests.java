@@ -0,0 +1,166 @@
+package kaiquebt.dev.auth.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import kaiquebt.dev.auth.config.AuthMetricsProperties;
+import kaiquebt.dev.auth.config.LoginLimiterProperties;
+
+class LoginLimiterTests {
+
+    private ExecutorService executor;
+    // held by the logins running in the executor
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    void setup() {
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void cleanup() {
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void rejectsWhenTheQueueIsFull() throws Exception {
+        LoginLimiter limiter = limiter(1, 1, 5_000);
+        Future<String> running = executor.submit(() -> limiter.run(this::blockedLogin));
+        await(() -> limiter.getActiveCount() == 1, "O primeiro login deve estar rodando");
+        Future<String> queued = executor.submit(() -> limiter.run(() -> "na fila"));
+        await(() -> limiter.getQueueDepth() == 1, "O segundo login deve esperar na fila");
+
+        LoginRejectedException rejected = assertThrows(LoginRejectedException.class, () -> limiter.run(() -> "rejeitado"));
+        assertEquals("Fila de login cheia", rejected.getMessage());
+        assertEquals(1, limiter.getRejectedCount());
+
+        release.countDown();
+        assertEquals("ok", running.get(5, TimeUnit.SECONDS));
+        assertEquals("na fila", queued.get(5, TimeUnit.SECONDS));
+        assertEquals(2, limiter.getAdmittedCount());
+        assertEquals(0, limiter.getActiveCount());
+        assertEquals(0, limiter.getQueueDepth());
+    }
+
+    @Test
+    void rejectsAfterTheQueueTimeout() throws Exception {
+        LoginLimiter limiter = limiter(1, 1, 100);
+        executor.submit(() -> limiter.run(this::blockedLogin));
+        await(() -> limiter.getActiveCount() == 1, "O primeiro login deve estar rodando");
+
+        long start = System.currentTimeMillis();
+        LoginRejectedException rejected = assertThrows(LoginRejectedException.class, () -> limiter.run(() -> "atrasado"));
+        assertTrue(System.currentTimeMillis() - start >= 100, "Deve esperar queue-timeout-ms na fila");
+        assertEquals("Tempo de espera na fila de login esgotado", rejected.getMessage());
+        assertEquals(1, limiter.getTimedOutCount());
+        assertEquals(0, limiter.getQueueDepth());
+    }
+
+    @Test
+    void releasesThePermitWhenTheLoginFails() {
+        LoginLimiter limiter = limiter(1, 0, 100);
+
+        assertThrows(IllegalStateException.class, () -> limiter.run(() -> {
+            throw new IllegalStateException("senha errada");
+        }));
+
+        assertEquals(0, limiter.getActiveCount());
+        assertEquals("ok", limiter.run(() -> "ok"));
+    }
+
+    @Test
+    void publishesMetersToTheApplicationRegistry() throws Exception {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        LoginLimiter limiter = limiter(1, 1, 100, metrics(true, registry));
+        limiter.afterSingletonsInstantiated();
+
+        executor.submit(() -> limiter.run(this::blockedLogin));
+        await(() -> registry.get(LoginLimiter.ACTIVE_GAUGE).gauge().value() == 1, "O login rodando deve aparecer no gauge");
+        Future<String> queued = executor.submit(() -> limiter.run(() -> "na fila"));
+        await(() -> registry.get(LoginLimiter.QUEUE_GAUGE).gauge().value() == 1, "O login na fila deve aparecer no gauge");
+        assertThrows(LoginRejectedException.class, () -> limiter.run(() -> "rejeitado"));
+
+        release.countDown();
+        assertEquals("na fila", queued.get(5, TimeUnit.SECONDS));
+        assertEquals(0, registry.get(LoginLimiter.QUEUE_GAUGE).gauge().value());
+        assertEquals(2, registry.get(LoginLimiter.REQUESTS_COUNTER).tag("outcome", "admitted").counter().count());
+        assertEquals(1, registry.get(LoginLimiter.REQUESTS_COUNTER).tag("outcome", "rejected").counter().count());
+        assertEquals(0, registry.get(LoginLimiter.REQUESTS_COUNTER).tag("outcome", "timeout").counter().count());
+        assertEquals(2, registry.get(LoginLimiter.WAIT_TIMER).timer().count());
+        assertTrue(registry.get(LoginLimiter.WAIT_TIMER).timer().max(TimeUnit.NANOSECONDS) > 0, "A espera na fila deve ser medida");
+    }
+
+    @Test
+    void keepsMetersLocalWhenMetricsAreDisabled() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        LoginLimiter limiter = limiter(1, 1, 100, metrics(false, registry));
+        limiter.afterSingletonsInstantiated();
+
+        limiter.run(() -> "ok");
+
+        assertTrue(registry.getMeters().isEmpty());
+        assertEquals(1, limiter.getAdmittedCount());
+        assertTrue(limiter.getAverageWaitMillis() >= 0);
+    }
+
+    private String blockedLogin() {
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "ok";
+    }
+
+    private static LoginLimiter limiter(int maxConcurrent, int maxQueue, long queueTimeoutMs) {
+        return limiter(maxConcurrent, maxQueue, queueTimeoutMs, metrics(false, null));
+    }
+
+    private static LoginLimiter limiter(int maxConcurrent, int maxQueue, long queueTimeoutMs, AuthMetrics metrics) {
+        LoginLimiterProperties properties = new LoginLimiterProperties();
+        properties.setEnabled(true);
+        properties.setMaxConcurrent(maxConcurrent);
+        properties.setMaxQueue(maxQueue);
+        properties.setQueueTimeoutMs(queueTimeoutMs);
+        return new LoginLimiter(properties, metrics);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static AuthMetrics metrics(boolean enabled, MeterRegistry registry) {
+        AuthMetricsProperties properties = new AuthMetricsProperties();
+        properties.setEnabled(enabled);
+        ObjectProvider<MeterRegistry> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable()).thenReturn(registry);
+        return new AuthMetrics(properties, provider);
+    }
+
+    private static void await(BooleanSupplier condition, String message) {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail(message);
+            }
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(message);
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package kaiquebt.dev.auth.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import kaiquebt.dev.auth.config.RateLimitProperties;
+
+class RateLimitFilterTests {
+
+    private RateLimitFilter filter;
+
+    @BeforeEach
+    void setup() {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setWidth(1024);
+        properties.setRules(List.of(new RateLimitProperties.Rule("/login", 2, 60)));
+        filter = new RateLimitFilter(properties, "/api/auth");
+    }
+
+    @Test
+    void rejectsOverTheLimitWithRetryAfter() throws Exception {
+        assertPassed(filter("/api/auth/login", "10.0.0.1"));
+        assertPassed(filter("/api/auth/login/", "10.0.0.1"));
+
+        MockHttpServletResponse rejected = filter("/api/auth//login", "10.0.0.1");
+
+        assertEquals(429, rejected.getStatus());
+        assertEquals("60", rejected.getHeader(HttpHeaders.RETRY_AFTER));
+        assertTrue(rejected.getContentType().startsWith("application/json"));
+        assertTrue(rejected.getContentAsString().contains("Muitas requisições"));
+        assertPassed(filter("/api/auth/login", "10.0.0.2"));
+    }
+
+    @Test
+    void encodedPathsShareTheBucket() throws Exception {
+        assertPassed(filter("/api/auth/login", "10.0.0.1"));
+        assertPassed(filter("/api/auth/l%6Fgin", "10.0.0.1"));
+
+        MockHttpServletResponse rejected = filter("/api/auth/%6Cogin", "10.0.0.1");
+
+        assertEquals(429, rejected.getStatus(), "Caminhos codificados devem contar para a mesma regra");
+        assertEquals("60", rejected.getHeader(HttpHeaders.RETRY_AFTER));
+        assertEquals(429, filter("/api/auth/login;jsessionid=1", "10.0.0.1").getStatus());
+    }
+
+    @Test
+    void forwardedHeadersDoNotChangeTheKey() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            MockHttpServletRequest request = request("/api/auth/login", "10.0.0.1");
+            request.addHeader("X-Forwarded-For", "203.0.113." + i);
+            request.addHeader("Proxy-Client-IP", "198.51.100." + i);
+            MockHttpServletResponse response = filter(request);
+            assertEquals(i < 2 ? 200 : 429, response.getStatus(), "Cabeçalhos enviados pelo cliente não podem burlar o limite");
+        }
+    }
+
+    @Test
+    void otherPathsAreNotLimited() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            assertPassed(filter("/api/auth/signup", "10.0.0.1"));
+        }
+    }
+
+    private void assertPassed(MockHttpServletResponse response) {
+        assertEquals(200, response.getStatus());
+        assertNull(response.getHeader(HttpHeaders.RETRY_AFTER));
+    }
+
+    private MockHttpServletResponse filter(String path, String remoteAddr) throws Exception {
+        return filter(request(path, remoteAddr));
+    }
+
+    private MockHttpServletResponse filter(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(request, response, chain);
+        assertEquals(response.getStatus() == 200, chain.getRequest() != null, "Só requisições dentro do limite seguem adiante");
+        return response;
+    }
+
+    private static MockHttpServletRequest request(String path, String remoteAddr) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", path);
+        request.setRemoteAddr(remoteAddr);
+        return request;
+    }
+}
@@ -0,0 +1,145 @@
+package kaiquebt.dev.auth.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import kaiquebt.dev.auth.config.AuthThreads;
+import kaiquebt.dev.auth.config.KeyRingProperties;
+import kaiquebt.dev.auth.model.BaseSigningKey;
+import kaiquebt.dev.auth.repository.BaseSigningKeyRepository;
+
+class SigningKeyRingTests {
+
+    private static final String JWT_SECRET = "daf66e01593f61a15b857cf433aae03a005812b31234e149036bcc8dee755dbb";
+
+    private BaseSigningKeyRepository<BaseSigningKey> repository;
+    // the table, saved entities are kept as they are
+    private final List<BaseSigningKey> rows = new ArrayList<>();
+    private final List<SigningKeyRing<BaseSigningKey>> rings = new ArrayList<>();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setup() {
+        repository = mock(BaseSigningKeyRepository.class);
+        when(repository.findAllOrderByActivatesAt()).thenAnswer(invocation -> List.copyOf(rows));
+        when(repository.save(any())).thenAnswer(invocation -> {
+            BaseSigningKey key = invocation.getArgument(0);
+            if (key.getId() == null) {
+                key.setId((long) rows.size() + 1);
+                rows.add(key);
+            }
+            return key;
+        });
+    }
+
+    @AfterEach
+    void cleanup() {
+        rings.forEach(SigningKeyRing::stop);
+    }
+
+    @Test
+    void newKeysAreStoredEncrypted() {
+        SigningKeyRing<BaseSigningKey> ring = start(properties(), JWT_SECRET);
+
+        assertEquals(1, rows.size());
+        String stored = rows.get(0).getPrivateKey();
+        assertTrue(stored.startsWith("aesgcm:"), "A chave privada não deve ficar em texto puro");
+
+        SigningKeyRing<BaseSigningKey> other = start(properties(), JWT_SECRET);
+        assertEquals(ring.signingKey().privateKey(), other.signingKey().privateKey(), "Outra instância deve decifrar a mesma chave");
+
+        IllegalStateException wrongKey = assertThrows(IllegalStateException.class, () -> start(properties(), "outro-segredo"));
+        assertTrue(wrongKey.getMessage().contains("decifrar"));
+
+        // the kid is authenticated, the ciphertext can't be moved to another row
+        rows.get(0).setKid("00000000-0000-0000-0000-000000000000");
+        assertThrows(IllegalStateException.class, () -> start(properties(), JWT_SECRET));
+    }
+
+    @Test
+    void plainKeysAreEncryptedOnLoad() throws Exception {
+        KeyPair pair = keyPair();
+        rows.add(BaseSigningKey.builder()
+                .id(1L)
+                .kid("11111111-1111-1111-1111-111111111111")
+                .algorithm(SigningKeyRing.ALGORITHM)
+                .publicKey(Base64.getEncoder().encodeToString(pair.getPublic().getEncoded()))
+                .privateKey(Base64.getEncoder().encodeToString(pair.getPrivate().getEncoded()))
+                .activatesAt(LocalDateTime.now().minusMinutes(1))
+                .build());
+
+        SigningKeyRing<BaseSigningKey> ring = start(properties(), JWT_SECRET);
+
+        assertEquals(pair.getPrivate(), ring.signingKey().privateKey());
+        assertTrue(rows.get(0).getPrivateKey().startsWith("aesgcm:"), "Linhas antigas devem ser cifradas na carga");
+        assertEquals(pair.getPrivate(), start(properties(), JWT_SECRET).signingKey().privateKey());
+    }
+
+    @Test
+    void encryptionCanBeTurnedOff() {
+        KeyRingProperties encrypted = properties();
+        encrypted.setEncryptionKey(Base64.getEncoder().encodeToString(new byte[32]));
+        SigningKeyRing<BaseSigningKey> first = start(encrypted, JWT_SECRET);
+
+        KeyRingProperties plain = properties();
+        plain.setEncryptionKey(encrypted.getEncryptionKey());
+        plain.setEncryptPrivateKeys(false);
+        SigningKeyRing<BaseSigningKey> second = start(plain, JWT_SECRET);
+
+        assertTrue(rows.get(0).getPrivateKey().startsWith("aesgcm:"), "Linhas cifradas continuam cifradas");
+        assertEquals(first.signingKey().privateKey(), second.signingKey().privateKey());
+
+        rows.clear();
+        start(plain, JWT_SECRET);
+        assertFalse(rows.get(0).getPrivateKey().startsWith("aesgcm:"));
+        assertDoesNotThrow(() -> Base64.getDecoder().decode(rows.get(0).getPrivateKey()));
+    }
+
+    @Test
+    void rejectsInvalidEncryptionKey() {
+        KeyRingProperties props = properties();
+        props.setEncryptionKey(Base64.getEncoder().encodeToString(new byte[20]));
+
+        assertThrows(IllegalStateException.class, () -> ring(props, JWT_SECRET));
+    }
+
+    private SigningKeyRing<BaseSigningKey> start(KeyRingProperties props, String jwtSecret) {
+        SigningKeyRing<BaseSigningKey> ring = ring(props, jwtSecret);
+        ring.start();
+        rings.add(ring);
+        return ring;
+    }
+
+    private SigningKeyRing<BaseSigningKey> ring(KeyRingProperties props, String jwtSecret) {
+        return new SigningKeyRing<>(repository, BaseSigningKey::new, props,
+                new AuthThreads(new MockEnvironment()), 3_600_000, jwtSecret);
+    }
+
+    private static KeyRingProperties properties() {
+        KeyRingProperties props = new KeyRingProperties();
+        props.setEnabled(true);
+        props.setRotationIntervalSeconds(0);
+        props.setReloadIntervalMs(3_600_000);
+        return props;
+    }
+
+    private static KeyPair keyPair() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec("secp256r1"));
+        return generator.generateKeyPair();
+    }
+}
@@ -0,0 +1,65 @@
+package kaiquebt.dev.auth.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class SlidingWindowSketchTests {
+
+    private static final long WINDOW_MS = 1000;
+
+    @Test
+    void countsHitsInTheWindow() {
+        SlidingWindowSketch sketch = new SlidingWindowSketch(1024, 4, WINDOW_MS);
+
+        for (int i = 1; i <= 5; i++) {
+            assertEquals(i, sketch.increment("10.0.0.1", 100 + i));
+        }
+    }
+
+    @Test
+    void keysAreCountedSeparately() {
+        SlidingWindowSketch sketch = new SlidingWindowSketch(1024, 4, WINDOW_MS);
+
+        for (int i = 0; i < 50; i++) {
+            sketch.increment("10.0.0.1", 100);
+        }
+
+        assertEquals(1, sketch.increment("10.0.0.2", 100), "Um IP ocupado não deve contar para outro");
+        assertEquals(51, sketch.increment("10.0.0.1", 100));
+    }
+
+    @Test
+    void previousWindowFadesOut() {
+        SlidingWindowSketch sketch = new SlidingWindowSketch(1024, 4, WINDOW_MS);
+        for (int i = 0; i < 10; i++) {
+            sketch.increment("10.0.0.1", 900);
+        }
+
+        // halfway through the next window half of the previous count is left
+        assertEquals(1 + 10 * 0.5, sketch.increment("10.0.0.1", 1500), 0.0001);
+        assertEquals(2 + 10 * 0.25, sketch.increment("10.0.0.1", 1750), 0.0001);
+        // the window after that only sees the 2 hits of window 1
+        assertEquals(1 + 2, sketch.increment("10.0.0.1", 2000), 0.0001);
+        // after a full idle window nothing is left
+        assertEquals(1, sketch.increment("10.0.0.1", 5000));
+        assertEquals(1, sketch.increment("10.0.0.2", 5000));
+    }
+
+    @Test
+    void neverUndercountsOnCollisions() {
+        // 16 counters for 200 keys, most of them collide
+        SlidingWindowSketch sketch = new SlidingWindowSketch(16, 2, WINDOW_MS);
+        Random random = new Random(42);
+        int[] hits = new int[200];
+
+        for (int i = 0; i < 5_000; i++) {
+            int key = random.nextInt(hits.length);
+            hits[key]++;
+            double estimate = sketch.increment("10.0.0." + key, 100);
+            assertTrue(estimate >= hits[key], "A estimativa não pode ficar abaixo das requisições reais");
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package kaiquebt.dev.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import kaiquebt.dev.client.config.EmailTemplateBean;
+import kaiquebt.dev.client.model.User;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EmailTemplateBenchmark {
+
+    private final EmailTemplateBean templates = new EmailTemplateBean();
+    private User user;
+    private String confirmationUrl;
+
+    @Setup
+    public void setup() {
+        user = Fixtures.user();
+        confirmationUrl = "https://example.com/api/auth/confirm-email?token=2f1c9a0e-4b7d-4a43-9c1e-8d2b6f0a7e55";
+    }
+
+    @Benchmark
+    public String buildEmailConfirm() {
+        return templates.buildEmailConfirm(user, confirmationUrl);
+    }
+
+    @Benchmark
+    public byte[] renderEmailConfirm() {
+        return templates.renderEmailConfirm(user, confirmationUrl);
+    }
+}
@@ -0,0 +1,74 @@
+package kaiquebt.dev.benchmarks;
+
+import java.util.Optional;
+import java.util.Set;
+
+import org.mockito.Mockito;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import kaiquebt.dev.auth.config.AuthMetricsProperties;
+import kaiquebt.dev.auth.config.KeyRingProperties;
+import kaiquebt.dev.auth.config.PasswordHashingProperties;
+import kaiquebt.dev.auth.config.UserDetailsCacheProperties;
+import kaiquebt.dev.auth.model.BaseUser.RoleType;
+import kaiquebt.dev.auth.repository.BaseUserRepository;
+import kaiquebt.dev.auth.service.AuthMetrics;
+import kaiquebt.dev.auth.service.CustomUserDetailsService;
+import kaiquebt.dev.auth.service.JwtTokenProvider;
+import kaiquebt.dev.client.model.User;
+
+/**
+ * Builds the auth beans by hand, the same way Spring would with the default properties,
+ * so the benchmarks measure the code path and not the container
+ */
+final class Fixtures {
+    static final String JWT_SECRET = "daf66e01593f61a15b857cf433aae03a005812b31234e149036bcc8dee755dbb";
+    static final long JWT_EXPIRATION_MS = 3_600_000;
+
+    private Fixtures() {}
+
+    static User user() {
+        return User.builder()
+            .id(42L)
+            .username("kaique")
+            .email("kaiq@gmail.com")
+            .password("{noop}Senha@123")
+            .roles(Set.of(RoleType.ROLE_USER))
+            .tokenGeneration(0)
+            .build();
+    }
+
+    static JwtTokenProvider jwtTokenProvider() {
+        JwtTokenProvider provider = new JwtTokenProvider(emptyProvider(), new KeyRingProperties(), authMetrics());
+        ReflectionTestUtils.setField(provider, "jwtSecret", JWT_SECRET);
+        ReflectionTestUtils.setField(provider, "jwtExpirationInMs", JWT_EXPIRATION_MS);
+        ReflectionTestUtils.invokeMethod(provider, "init");
+        return provider;
+    }
+
+    /**
+     * Backed by a mocked repository, with the user cache on only the first lookup reaches it
+     */
+    @SuppressWarnings("unchecked")
+    static CustomUserDetailsService<User> userDetailsService(boolean cacheEnabled) {
+        BaseUserRepository<User> repository = Mockito.mock(BaseUserRepository.class);
+        Mockito.when(repository.findByUsernameOrEmail(Mockito.anyString(), Mockito.anyString()))
+            .thenReturn(Optional.of(user()));
+
+        UserDetailsCacheProperties cacheProperties = new UserDetailsCacheProperties();
+        cacheProperties.setEnabled(cacheEnabled);
+        return new CustomUserDetailsService<>(repository, cacheProperties, new PasswordHashingProperties());
+    }
+
+    // disabled, as in the default configuration
+    static AuthMetrics authMetrics() {
+        return new AuthMetrics(new AuthMetricsProperties(), emptyProvider());
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    static <T> ObjectProvider<T> emptyProvider() {
+        return (ObjectProvider) new StaticListableBeanFactory().getBeanProvider(Object.class);
+    }
+}
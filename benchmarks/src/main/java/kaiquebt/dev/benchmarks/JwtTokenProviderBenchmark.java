@@ -0,0 +1,54 @@
+package kaiquebt.dev.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.jsonwebtoken.Claims;
+import kaiquebt.dev.auth.service.JwtTokenProvider;
+import kaiquebt.dev.auth.service.JwtTokenProvider.GeneratedTokenResponse;
+import kaiquebt.dev.client.model.User;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtTokenProviderBenchmark {
+
+    private JwtTokenProvider provider;
+    private User user;
+    private String token;
+
+    @Setup
+    public void setup() {
+        provider = Fixtures.jwtTokenProvider();
+        user = Fixtures.user();
+        token = provider.generateToken(user).token;
+    }
+
+    @Benchmark
+    public GeneratedTokenResponse generateToken() {
+        return provider.generateToken(user);
+    }
+
+    @Benchmark
+    public boolean validateToken() {
+        return provider.validateToken(token);
+    }
+
+    @Benchmark
+    public Claims parseAndValidate() {
+        return provider.parseAndValidate(token);
+    }
+}
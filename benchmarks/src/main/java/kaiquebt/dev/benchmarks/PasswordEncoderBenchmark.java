@@ -0,0 +1,71 @@
+package kaiquebt.dev.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import kaiquebt.dev.auth.config.PasswordEncoders;
+import kaiquebt.dev.auth.config.PasswordHashingProperties;
+import kaiquebt.dev.auth.config.PasswordHashingProperties.Algorithm;
+
+/**
+ * PasswordEncoder.matches at the costs a deployment would pick, built through the same
+ * factory as the application. One operation is one login attempt
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class PasswordEncoderBenchmark {
+    private static final String PASSWORD = "Senha@123";
+
+    @Param({ "bcrypt:10", "bcrypt:12", "pbkdf2:310000", "argon2:19456" })
+    public String cost;
+
+    private PasswordEncoder encoder;
+    private String hash;
+
+    @Setup
+    public void setup() {
+        String[] parts = cost.split(":");
+        int value = Integer.parseInt(parts[1]);
+
+        PasswordHashingProperties props = new PasswordHashingProperties();
+        switch (parts[0]) {
+            case "bcrypt" -> {
+                props.setAlgorithm(Algorithm.BCRYPT);
+                props.setBcryptStrength(value);
+            }
+            case "pbkdf2" -> {
+                props.setAlgorithm(Algorithm.PBKDF2);
+                props.setPbkdf2Iterations(value);
+            }
+            case "argon2" -> {
+                props.setAlgorithm(Algorithm.ARGON2);
+                props.setArgon2MemoryKb(value);
+            }
+            default -> throw new IllegalArgumentException("Unknown cost " + cost);
+        }
+
+        encoder = PasswordEncoders.create(props);
+        hash = encoder.encode(PASSWORD);
+    }
+
+    @Benchmark
+    public boolean matches() {
+        return encoder.matches(PASSWORD, hash);
+    }
+}
@@ -0,0 +1,56 @@
+package kaiquebt.dev.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import kaiquebt.dev.auth.service.RequestContextService;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestContextServiceBenchmark {
+
+    // direct: no proxy headers, single-proxy: one X-Forwarded-For hop,
+    // proxy-chain: CDN plus load balancer, fallback: only a header late in the lookup list
+    @Param({ "direct", "single-proxy", "proxy-chain", "fallback" })
+    public String headers;
+
+    private final RequestContextService service = new RequestContextService();
+    private MockHttpServletRequest request;
+
+    @Setup
+    public void setup() {
+        request = new MockHttpServletRequest("POST", "/api/auth/login");
+        request.setRemoteAddr("10.0.0.12");
+        request.addHeader("User-Agent", "Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/126.0 Safari/537.36");
+        request.addHeader("Accept", "application/json");
+        request.addHeader("Content-Type", "application/json");
+        switch (headers) {
+            case "direct" -> { }
+            case "single-proxy" -> request.addHeader("X-Forwarded-For", "203.0.113.7");
+            case "proxy-chain" -> request.addHeader("X-Forwarded-For", "203.0.113.7, 198.51.100.23, 10.0.0.3");
+            case "fallback" -> request.addHeader("HTTP_X_FORWARDED_FOR", "203.0.113.7");
+            default -> throw new IllegalArgumentException("Unknown header set " + headers);
+        }
+    }
+
+    @Benchmark
+    public String getClientIp() {
+        return service.getClientIp(request);
+    }
+}
@@ -1,18 +1,19 @@
 package kaiquebt.dev.client.config;
 
+import java.nio.charset.StandardCharsets;
 import java.time.format.DateTimeFormatter;
 
 import org.springframework.stereotype.Service;
 
+import kaiquebt.dev.auth.service.EmailTemplate;
 import kaiquebt.dev.auth.service.IEmailTemplateBean;
 import kaiquebt.dev.client.model.User;
 
 @Service
 public class EmailTemplateBean implements IEmailTemplateBean<User> {
-    
-    @Override
-    public String buildEmailConfirm(User user, String confirmationUrl) {
-        return String.format("""
+    private static final DateTimeFormatter EXPIRES_AT_FORMAT = DateTimeFormatter.ofPattern("MMMM dd, yyyy 'at' HH:mm");
+
+    private static final EmailTemplate EMAIL_CONFIRM = EmailTemplate.compile("""
             <!DOCTYPE html>
             <html>
             <head>
@@ -30,7 +31,7 @@ public class EmailTemplateBean implements IEmailTemplateBean<User> {
                     
                     <!-- Content -->
                     <div style="padding: 40px 30px;">
-                        <h2 style="color: #333; margin-bottom: 20px;">Hello, %s! 👋</h2>
+                        <h2 style="color: #333; margin-bottom: 20px;">Hello, {{username}}! 👋</h2>
                         
                         <p style="color: #666; font-size: 16px; line-height: 1.6; margin-bottom: 30px;">
                             Welcome to the <strong>KaiqueBT Auth Module</strong> demonstration! 
@@ -39,7 +40,7 @@ public class EmailTemplateBean implements IEmailTemplateBean<User> {
                         
                         <!-- Call to Action Button -->
                         <div style="text-align: center; margin: 40px 0;">
-                            <a href="%s" 
+                            <a href="{{confirmationUrl}}" 
                                style="display: inline-block; background-color: #00b894; color: white; 
                                       text-decoration: none; padding: 15px 40px; border-radius: 8px; 
                                       font-weight: bold; font-size: 16px; box-shadow: 0 2px 4px rgba(0,0,0,0.1);">
@@ -74,7 +75,7 @@ public class EmailTemplateBean implements IEmailTemplateBean<User> {
                             <strong>Button not working?</strong> Copy and paste this link in your browser:
                         </p>
                         <p style="color: #6c5ce7; font-size: 12px; word-break: break-all; margin: 0 0 15px 0;">
-                            <a href="%s" style="color: #6c5ce7;">%s</a>
+                            <a href="{{confirmationUrl}}" style="color: #6c5ce7;">{{confirmationUrl}}</a>
                         </p>
                         
                         <hr style="border: none; border-top: 1px solid #dee2e6; margin: 15px 0;">
@@ -87,21 +88,9 @@ public class EmailTemplateBean implements IEmailTemplateBean<User> {
                 </div>
             </body>
             </html>
-            """, user.getUsername(), confirmationUrl, confirmationUrl, confirmationUrl);
-    }
-    
-    @Override
-    public String getEmailConfirmTitle() {
-        return "Client of kaiquebt auth module :D";
-    }
-
-    @Override
-    public String buildRecoverAccount(User user, String token) {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMMM dd, yyyy 'at' HH:mm");
-        String expiresAt = user.getPasswordRecovery().getTokenExpiresAt().format(formatter);
-
+            """, "username", "confirmationUrl");
 
-        return String.format("""
+    private static final EmailTemplate RECOVER_ACCOUNT = EmailTemplate.compile("""
             <!DOCTYPE html>
             <html>
             <head>
@@ -119,7 +108,7 @@ public class EmailTemplateBean implements IEmailTemplateBean<User> {
                     
                     <!-- Content -->
                     <div style="padding: 40px 30px;">
-                        <h2 style="color: #333; margin-bottom: 20px;">Hello, %s! 👋</h2>
+                        <h2 style="color: #333; margin-bottom: 20px;">Hello, {{username}}! 👋</h2>
                         
                         <p style="color: #666; font-size: 16px; line-height: 1.6; margin-bottom: 30px;">
                             We received a request to reset your password. Use the token below to reset your password:
@@ -128,7 +117,7 @@ public class EmailTemplateBean implements IEmailTemplateBean<User> {
                         <!-- Token Display -->
                         <div style="text-align: center; margin: 40px 0; padding: 20px; background-color: #f8f9fa; border-radius: 8px; border: 1px solid #dee2e6;">
                             <p style="color: #333; font-family: monospace; font-size: 18px; word-break: break-all; margin: 0;">
-                                %s
+                                {{token}}
                             </p>
                         </div>
                         
@@ -136,7 +125,7 @@ public class EmailTemplateBean implements IEmailTemplateBean<User> {
                         <div style="background-color: #fff3cd; border: 1px solid #ffeaa7; border-radius: 8px; padding: 20px; margin: 30px 0;">
                             <h3 style="color: #856404; margin: 0 0 15px 0; font-size: 16px;">⚠️ Important Information:</h3>
                             <ul style="color: #856404; margin: 0; padding-left: 20px;">
-                                <li>This token expires <strong>%s</strong></li>
+                                <li>This token expires <strong>{{expiresAt}}</strong></li>
                                 <li>Can only be used <strong>once</strong></li>
                                 <li>Keep this token secure and do not share it with anyone</li>
                             </ul>
@@ -153,7 +142,32 @@ public class EmailTemplateBean implements IEmailTemplateBean<User> {
                 </div>
             </body>
         </html>
-        """, user.getUsername(), token, expiresAt);
+        """, "username", "token", "expiresAt");
+
+    @Override
+    public String buildEmailConfirm(User user, String confirmationUrl) {
+        return new String(renderEmailConfirm(user, confirmationUrl), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public byte[] renderEmailConfirm(User user, String confirmationUrl) {
+        return EMAIL_CONFIRM.render(user.getUsername(), confirmationUrl);
+    }
+    
+    @Override
+    public String getEmailConfirmTitle() {
+        return "Client of kaiquebt auth module :D";
+    }
+
+    @Override
+    public String buildRecoverAccount(User user, String token) {
+        return new String(renderRecoverAccount(user, token), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public byte[] renderRecoverAccount(User user, String token) {
+        String expiresAt = user.getPasswordRecovery().getTokenExpiresAt().format(EXPIRES_AT_FORMAT);
+        return RECOVER_ACCOUNT.render(user.getUsername(), token, expiresAt);
     }
 
     @Override
@@ -10,8 +10,16 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import kaiquebt.dev.auth.interfaces.IEmailOutboxInstantiator;
+import kaiquebt.dev.auth.interfaces.IRefreshTokenInstantiator;
+import kaiquebt.dev.auth.interfaces.ISigningKeyInstantiator;
+import kaiquebt.dev.auth.interfaces.ITokenRevocationInstantiator;
 import kaiquebt.dev.auth.interfaces.IUserSessionLogInstantiator;
 import kaiquebt.dev.auth.service.JwtAuthenticationFilter;
+import kaiquebt.dev.client.model.EmailOutboxMessage;
+import kaiquebt.dev.client.model.RefreshToken;
+import kaiquebt.dev.client.model.SigningKey;
+import kaiquebt.dev.client.model.TokenRevocation;
 import kaiquebt.dev.client.model.User;
 import kaiquebt.dev.client.model.UserSessionLog;
 import lombok.RequiredArgsConstructor;
@@ -33,6 +41,26 @@ public class SecurityConfig {
         return user -> new UserSessionLog();
     }
 
+    @Bean
+    public IEmailOutboxInstantiator<EmailOutboxMessage> emailOutboxInstantiator() {
+        return EmailOutboxMessage::new;
+    }
+
+    @Bean
+    public IRefreshTokenInstantiator<User, RefreshToken> refreshTokenInstantiator() {
+        return user -> new RefreshToken();
+    }
+
+    @Bean
+    public ITokenRevocationInstantiator<TokenRevocation> tokenRevocationInstantiator() {
+        return TokenRevocation::new;
+    }
+
+    @Bean
+    public ISigningKeyInstantiator<SigningKey> signingKeyInstantiator() {
+        return SigningKey::new;
+    }
+
     @Bean
     SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http.csrf(csrf -> csrf.disable())
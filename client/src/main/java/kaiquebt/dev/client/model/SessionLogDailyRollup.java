@@ -0,0 +1,27 @@
+package kaiquebt.dev.client.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import kaiquebt.dev.auth.model.BaseSessionLogDailyRollup;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import lombok.experimental.SuperBuilder;
+
+@SuperBuilder
+@Data
+@ToString
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+@Entity
+@Table(
+    name = "session_log_daily_rollups",
+    uniqueConstraints = @UniqueConstraint(name = "uk_session_log_daily_rollups_day", columnNames = {"log_date", "user_id", "session_origin"}),
+    indexes = @Index(name = "idx_session_log_daily_rollups_user", columnList = "user_id, log_date")
+)
+public class SessionLogDailyRollup extends BaseSessionLogDailyRollup {
+    
+}
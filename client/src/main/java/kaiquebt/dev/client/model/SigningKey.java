@@ -0,0 +1,21 @@
+package kaiquebt.dev.client.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Table;
+import kaiquebt.dev.auth.model.BaseSigningKey;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import lombok.experimental.SuperBuilder;
+
+@SuperBuilder
+@Data
+@ToString
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+@Entity
+@Table(name = "signing_keys")
+public class SigningKey extends BaseSigningKey {
+    
+}
@@ -0,0 +1,25 @@
+package kaiquebt.dev.client.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import kaiquebt.dev.auth.model.BaseTokenRevocation;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import lombok.experimental.SuperBuilder;
+
+@SuperBuilder
+@Data
+@ToString
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+@Entity
+@Table(
+    name = "token_revocations",
+    indexes = @Index(name = "idx_token_revocations_created", columnList = "created_at")
+)
+public class TokenRevocation extends BaseTokenRevocation {
+    
+}
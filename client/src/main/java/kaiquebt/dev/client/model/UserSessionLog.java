@@ -1,6 +1,7 @@
 package kaiquebt.dev.client.model;
 
 import jakarta.persistence.Entity;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
 import kaiquebt.dev.auth.model.BaseUserSessionLog;
 import lombok.Data;
@@ -15,7 +16,14 @@ import lombok.experimental.SuperBuilder;
 @NoArgsConstructor
 @EqualsAndHashCode(callSuper = true)
 @Entity
-@Table(name = "user_session_logs")
+@Table(
+    name = "user_session_logs",
+    indexes = {
+        @Index(name = "idx_user_session_logs_user_created", columnList = "user_id, created_at, id"),
+        // used by the retention job to find and delete the oldest logs
+        @Index(name = "idx_user_session_logs_created", columnList = "created_at")
+    }
+)
 public class UserSessionLog extends BaseUserSessionLog<User> {
     
 }
@@ -0,0 +1,8 @@
+package kaiquebt.dev.client.repository;
+
+import kaiquebt.dev.auth.repository.BaseEmailOutboxRepository;
+import kaiquebt.dev.client.model.EmailOutboxMessage;
+
+public interface EmailOutboxRepository extends BaseEmailOutboxRepository<EmailOutboxMessage> {
+    
+}
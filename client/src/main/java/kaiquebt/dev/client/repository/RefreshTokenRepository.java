@@ -0,0 +1,8 @@
+package kaiquebt.dev.client.repository;
+
+import kaiquebt.dev.auth.repository.BaseRefreshTokenRepository;
+import kaiquebt.dev.client.model.RefreshToken;
+
+public interface RefreshTokenRepository extends BaseRefreshTokenRepository<RefreshToken> {
+    
+}
@@ -0,0 +1,8 @@
+package kaiquebt.dev.client.repository;
+
+import kaiquebt.dev.auth.repository.BaseSessionLogDailyRollupRepository;
+import kaiquebt.dev.client.model.SessionLogDailyRollup;
+
+public interface SessionLogDailyRollupRepository extends BaseSessionLogDailyRollupRepository<SessionLogDailyRollup> {
+    
+}
@@ -0,0 +1,8 @@
+package kaiquebt.dev.client.repository;
+
+import kaiquebt.dev.auth.repository.BaseSigningKeyRepository;
+import kaiquebt.dev.client.model.SigningKey;
+
+public interface SigningKeyRepository extends BaseSigningKeyRepository<SigningKey> {
+    
+}
@@ -0,0 +1,8 @@
+package kaiquebt.dev.client.repository;
+
+import kaiquebt.dev.auth.repository.BaseTokenRevocationRepository;
+import kaiquebt.dev.client.model.TokenRevocation;
+
+public interface TokenRevocationRepository extends BaseTokenRevocationRepository<TokenRevocation> {
+    
+}
@@ -0,0 +1,285 @@
+package kaiquebt.dev.client;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.function.BooleanSupplier;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import jakarta.persistence.EntityManagerFactory;
+import kaiquebt.dev.auth.config.AuthThreads;
+import kaiquebt.dev.auth.config.SessionLogWriterProperties;
+import kaiquebt.dev.auth.config.SessionLogWriterProperties.OverflowPolicy;
+import kaiquebt.dev.auth.model.UserSessionOrigin;
+import kaiquebt.dev.auth.service.AsyncSessionLogWriter;
+import kaiquebt.dev.auth.service.UserSessionLogService;
+import kaiquebt.dev.client.model.User;
+import kaiquebt.dev.client.model.UserSessionLog;
+import kaiquebt.dev.client.repository.UserRepository;
+import kaiquebt.dev.client.repository.UserSessionLogRepository;
+
+/**
+ * The application writer is enabled with batch-size 3 and a long flush interval. The
+ * overflow and shutdown tests build their own writers with other settings
+ */
+@SpringBootTest
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:sessionlogdb",
+        "spring.datasource.driverClassName=org.h2.Driver",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.mail.host=localhost",
+        "spring.mail.port=3025",
+        "spring.mail.username=test@test.com",
+        "spring.mail.password=test",
+        "kaiquebt.dev.auth.jwt-secret=daf66e01593f61a15b857cf433aae03a005812b31234e149036bcc8dee755dbb",
+        "kaiquebt.dev.auth.jwt-expiration-milliseconds=3600000",
+        "kaiquebt.dev.auth.external-url=http://localhost:8080",
+        "kaiquebt.dev.auth.session-log.async.enabled=true",
+        "kaiquebt.dev.auth.session-log.async.batch-size=3",
+        "kaiquebt.dev.auth.session-log.async.flush-interval-ms=5000",
+        "kaiquebt.dev.auth.session-log.async.shutdown-timeout-ms=1000"
+})
+class AsyncSessionLogWriterTests {
+
+    @Autowired
+    private AsyncSessionLogWriter sessionLogWriter;
+
+    @Autowired
+    private UserSessionLogService<User, UserSessionLog> userSessionLogService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserSessionLogRepository userSessionLogRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private AuthThreads authThreads;
+
+    @Autowired
+    private AutowireCapableBeanFactory beanFactory;
+
+    @MockitoBean
+    private JavaMailSender javaMailSender;
+
+    private User user;
+    // opened by each test, holds the flusher of the writers built with gatedJdbcTemplate
+    private final CountDownLatch gate = new CountDownLatch(1);
+
+    @BeforeEach
+    void beforeEach() {
+        userSessionLogRepository.deleteAll();
+        userRepository.deleteAll();
+        user = userRepository.save(User.builder()
+                .username("kaique")
+                .email("kaiq@gmail.com")
+                .password("123456")
+                .build());
+    }
+
+    @AfterEach
+    void afterEach() {
+        gate.countDown();
+    }
+
+    @Test
+    void testFlushesOnBatchSize() throws Exception {
+        long written = sessionLogWriter.getWrittenCount();
+
+        userSessionLogService.registerLoginSession(user, new UserSessionLog());
+        userSessionLogService.registerLoginSession(user, new UserSessionLog());
+        Thread.sleep(300);
+        assertEquals(0, userSessionLogRepository.count(), "Lote incompleto espera o flush-interval-ms");
+
+        userSessionLogService.registerLoginSession(user, new UserSessionLog());
+
+        await(() -> userSessionLogRepository.count() == 3, "O lote completo deve ser gravado sem esperar o intervalo");
+        assertEquals(written + 3, sessionLogWriter.getWrittenCount());
+        UserSessionLog stored = userSessionLogRepository.findAll().get(0);
+        assertEquals(user.getId(), stored.getUser().getId());
+        assertEquals(UserSessionOrigin.LOGIN.name(), stored.getSessionOrigin());
+        assertNotNull(stored.getCreatedAt());
+    }
+
+    @Test
+    void testFlushesOnInterval() {
+        AsyncSessionLogWriter writer = writer(properties(100, 100, 200, OverflowPolicy.CALLER_RUNS), new JdbcTemplate(dataSource));
+        try {
+            long start = System.currentTimeMillis();
+            writer.submit(log());
+            writer.submit(log());
+            assertEquals(0, writer.getWrittenCount());
+
+            await(() -> writer.getWrittenCount() == 2, "Lote incompleto deve ser gravado após flush-interval-ms");
+            assertTrue(System.currentTimeMillis() - start >= 150);
+            assertEquals(2, userSessionLogRepository.count(), "Uma única inserção com várias linhas");
+        } finally {
+            beanFactory.destroyBean(writer);
+        }
+    }
+
+    @Test
+    void testDropsWhenTheQueueIsFull() {
+        AsyncSessionLogWriter writer = writer(properties(1, 1, 60_000, OverflowPolicy.DROP), gatedJdbcTemplate());
+        try {
+            fillQueue(writer);
+
+            writer.submit(log());
+            assertEquals(1, writer.getDroppedCount());
+            assertEquals(0, writer.getWrittenCount());
+
+            gate.countDown();
+            await(() -> writer.getWrittenCount() == 2, "Os logs na fila devem ser gravados");
+            assertEquals(2, userSessionLogRepository.count());
+            assertEquals(1, writer.getDroppedCount());
+        } finally {
+            beanFactory.destroyBean(writer);
+        }
+    }
+
+    @Test
+    void testBlockWaitsThenDrops() {
+        SessionLogWriterProperties properties = properties(1, 1, 60_000, OverflowPolicy.BLOCK);
+        properties.setBlockTimeoutMs(100);
+        AsyncSessionLogWriter writer = writer(properties, gatedJdbcTemplate());
+        try {
+            fillQueue(writer);
+
+            long start = System.currentTimeMillis();
+            writer.submit(log());
+            assertTrue(System.currentTimeMillis() - start >= 100, "Deve esperar block-timeout-ms por espaço na fila");
+            assertEquals(1, writer.getDroppedCount());
+
+            gate.countDown();
+            await(() -> writer.getWrittenCount() == 2, "Os logs na fila devem ser gravados");
+        } finally {
+            beanFactory.destroyBean(writer);
+        }
+    }
+
+    @Test
+    void testCallerRunsWhenTheQueueIsFull() {
+        AsyncSessionLogWriter writer = writer(properties(1, 1, 60_000, OverflowPolicy.CALLER_RUNS), gatedJdbcTemplate());
+        try {
+            fillQueue(writer);
+
+            writer.submit(log());
+            assertEquals(1, writer.getWrittenCount(), "O log deve ser gravado na thread da requisição");
+            assertEquals(1, userSessionLogRepository.count());
+            assertEquals(0, writer.getDroppedCount());
+
+            gate.countDown();
+            await(() -> writer.getWrittenCount() == 3, "Os logs na fila devem ser gravados");
+            assertEquals(3, userSessionLogRepository.count());
+        } finally {
+            beanFactory.destroyBean(writer);
+        }
+    }
+
+    @Test
+    void testStopDrainsTheQueue() {
+        AsyncSessionLogWriter writer = writer(properties(100, 1000, 200, OverflowPolicy.CALLER_RUNS), new JdbcTemplate(dataSource));
+        for (int i = 0; i < 5; i++) {
+            writer.submit(log());
+        }
+
+        beanFactory.destroyBean(writer);
+
+        assertEquals(5, writer.getWrittenCount(), "stop() deve gravar o que ainda está na fila");
+        assertEquals(0, writer.getQueueSize());
+        assertEquals(5, userSessionLogRepository.count());
+
+        // after stop logs are written on the caller thread
+        writer.submit(log());
+        assertEquals(6, userSessionLogRepository.count());
+    }
+
+    /**
+     * Leaves one log held by the flusher, waiting on the gate, and one in the queue
+     */
+    private void fillQueue(AsyncSessionLogWriter writer) {
+        writer.submit(log());
+        await(() -> writer.getQueueSize() == 0, "O flusher deve pegar o primeiro log");
+        writer.submit(log());
+        assertEquals(1, writer.getQueueSize());
+    }
+
+    private AsyncSessionLogWriter writer(SessionLogWriterProperties properties, JdbcTemplate jdbcTemplate) {
+        AsyncSessionLogWriter writer = new AsyncSessionLogWriter(jdbcTemplate, entityManagerFactory, properties, authThreads);
+        // runs @PostConstruct, destroyBean runs @PreDestroy
+        return (AsyncSessionLogWriter) beanFactory.initializeBean(writer, "testSessionLogWriter");
+    }
+
+    private SessionLogWriterProperties properties(int queueCapacity, int batchSize, long flushIntervalMs, OverflowPolicy policy) {
+        SessionLogWriterProperties properties = new SessionLogWriterProperties();
+        properties.setEnabled(true);
+        properties.setQueueCapacity(queueCapacity);
+        properties.setBatchSize(batchSize);
+        properties.setFlushIntervalMs(flushIntervalMs);
+        properties.setOverflowPolicy(policy);
+        properties.setShutdownTimeoutMs(1000);
+        return properties;
+    }
+
+    /**
+     * Inserts from the flusher thread wait for the gate, inserts on the caller thread don't
+     */
+    private JdbcTemplate gatedJdbcTemplate() {
+        return new JdbcTemplate(dataSource) {
+            @Override
+            public int update(String sql, Object... args) {
+                if (Thread.currentThread().getName().startsWith("auth-session-log-writer")) {
+                    try {
+                        gate.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.update(sql, args);
+            }
+        };
+    }
+
+    private UserSessionLog log() {
+        return UserSessionLog.builder()
+                .user(user)
+                .sessionOrigin(UserSessionOrigin.LOGIN.name())
+                .ipAddress("127.0.0.1")
+                .userAgent("JUnit")
+                .build();
+    }
+
+    private static void await(BooleanSupplier condition, String message) {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail(message);
+            }
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(message);
+            }
+        }
+    }
+}
@@ -4,30 +4,79 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.security.AlgorithmParameters;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.ECPoint;
+import java.security.spec.ECPublicKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import kaiquebt.dev.auth.ConfirmEmailResponse;
 import kaiquebt.dev.auth.Controller;
 import kaiquebt.dev.auth.config.MailConfiguration.CustomMailSenderWrapper;
+import kaiquebt.dev.auth.dto.JwtAuthResponse;
+import kaiquebt.dev.auth.dto.LoginDto;
+import kaiquebt.dev.auth.dto.SessionHistoryDto;
+import kaiquebt.dev.auth.dto.SessionHistoryExportFormat;
+import kaiquebt.dev.auth.dto.SessionHistorySlice;
+import kaiquebt.dev.auth.model.BaseUser.RoleType;
+import kaiquebt.dev.auth.model.TokenData;
+import kaiquebt.dev.auth.model.UserSessionOrigin;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.jsonwebtoken.Jwts;
 import jakarta.mail.Session;
 import jakarta.mail.internet.MimeMessage;
+import kaiquebt.dev.auth.service.AuthMetrics;
 import kaiquebt.dev.auth.service.BaseAuthService;
+import kaiquebt.dev.auth.service.BulkSignupService;
+import kaiquebt.dev.auth.service.EmailTemplate;
+import kaiquebt.dev.auth.service.ExpiredTokenSweeper;
+import kaiquebt.dev.auth.service.SessionLogRetentionService;
+import kaiquebt.dev.auth.service.JwtTokenProvider;
+import kaiquebt.dev.auth.service.TokenRevocationService;
 import kaiquebt.dev.auth.service.BaseAuthService.SignupHook;
 import kaiquebt.dev.auth.service.BaseAuthService.SignupRequest;
+import kaiquebt.dev.auth.service.UserSessionLogService;
+import kaiquebt.dev.client.model.SessionLogDailyRollup;
 import kaiquebt.dev.client.model.User;
 import kaiquebt.dev.client.model.UserSessionLog;
+import kaiquebt.dev.client.repository.RefreshTokenRepository;
+import kaiquebt.dev.client.repository.SessionLogDailyRollupRepository;
 import kaiquebt.dev.client.repository.UserRepository;
+import kaiquebt.dev.client.repository.UserSessionLogRepository;
 
 @SpringBootTest
 @TestPropertySource(properties = {
@@ -41,11 +90,34 @@ import kaiquebt.dev.client.repository.UserRepository;
         "spring.mail.password=test",
         "kaiquebt.dev.auth.jwt-secret=daf66e01593f61a15b857cf433aae03a005812b31234e149036bcc8dee755dbb",
         "kaiquebt.dev.auth.jwt-expiration-milliseconds=3600000",
-        "kaiquebt.dev.auth.external-url=http://localhost:8080"
+        "kaiquebt.dev.auth.external-url=http://localhost:8080",
+        "kaiquebt.dev.auth.refresh-token.enabled=true",
+        "kaiquebt.dev.auth.revocation.enabled=true",
+        "kaiquebt.dev.auth.key-ring.enabled=true",
+        "kaiquebt.dev.auth.metrics.enabled=true",
+        "kaiquebt.dev.auth.token-sweeper.enabled=true",
+        "kaiquebt.dev.auth.token-sweeper.chunk-size=2",
+        "kaiquebt.dev.auth.token-sweeper.pause-ms=0",
+        "kaiquebt.dev.auth.session-log.retention.enabled=true",
+        "kaiquebt.dev.auth.session-log.retention.retention-days=30",
+        "kaiquebt.dev.auth.session-log.retention.chunk-size=2",
+        "kaiquebt.dev.auth.session-log.retention.pause-ms=0"
 })
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
 class ClientApplicationTests {
 
+    // the client has no actuator, this stands in for the registry it would provide
+    @TestConfiguration
+    static class MetricsConfig {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @Autowired
     private Controller controller;
 
@@ -55,6 +127,39 @@ class ClientApplicationTests {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private BulkSignupService<User> bulkSignupService;
+
+    @Autowired
+    private UserSessionLogRepository userSessionLogRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Autowired
+    private JwtTokenProvider jwtTokenProvider;
+
+    @Autowired
+    private TokenRevocationService<?> tokenRevocationService;
+
+    @Autowired
+    private ExpiredTokenSweeper<User> expiredTokenSweeper;
+
+    @Autowired
+    private SessionLogRetentionService sessionLogRetentionService;
+
+    @Autowired
+    private SessionLogDailyRollupRepository sessionLogDailyRollupRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserSessionLogService<User, UserSessionLog> userSessionLogService;
+
     @MockitoBean
     private JavaMailSender javaMailSender;
 
@@ -81,6 +186,9 @@ class ClientApplicationTests {
 
     @BeforeEach
     void beforeEach() {
+        refreshTokenRepository.deleteAll();
+        userSessionLogRepository.deleteAll();
+        sessionLogDailyRollupRepository.deleteAll();
         userRepository.deleteAll();
 
         reset(javaMailSender);
@@ -214,6 +322,56 @@ class ClientApplicationTests {
         );
 
     }
+
+    @Test
+    void testSignupConstraintViolations() {
+        // another signup takes the email between the check and the insert
+        IllegalArgumentException duplicate = assertThrows(IllegalArgumentException.class, () -> authService.signup(
+                new SignupRequest<User>() {
+                    @Override
+                    public User getUser() {
+                        return User.builder()
+                                .username("kaique")
+                                .email("kaiq@gmail.com")
+                                .password("123456")
+                                .build();
+                    }
+
+                    @Override
+                    public SignupHook<User> getHook() {
+                        return new SignupHook<User>() {
+                            @Override
+                            public void beforeSave(User user, SignupRequest<User> request) {
+                                userRepository.save(User.builder()
+                                        .username("concorrente")
+                                        .email("kaiq@gmail.com")
+                                        .password("123456")
+                                        .build());
+                            }
+                        };
+                    }
+                }));
+        assertEquals("Email already exists!", duplicate.getMessage());
+
+        // violations that are not about the username or email are not reported as duplicates
+        assertThrows(DataIntegrityViolationException.class, () -> authService.signup(
+                new SignupRequest<User>() {
+                    @Override
+                    public User getUser() {
+                        return User.builder()
+                                .username("semsenha")
+                                .email("semsenha@gmail.com")
+                                .password(null)
+                                .build();
+                    }
+
+                    @Override
+                    public SignupHook<User> getHook() {
+                        return null;
+                    }
+                }));
+    }
+
     @Test
     void testConfirmEmailWithInvalidToken() {
         authService.signup(
@@ -243,15 +401,16 @@ class ClientApplicationTests {
 
     @Test
     void testConfirmEmailWithExpiredToken() {
+        User newUser = User.builder()
+                .username("kaique")
+                .email("kaiq@gmail.com")
+                .password("123456")
+                .build();
         authService.signup(
         new SignupRequest<User>() {
             @Override
             public User getUser() {
-                return User.builder()
-                        .username("kaique")
-                        .email("kaiq@gmail.com")
-                        .password("123456")
-                        .build();
+                return newUser;
             }
 
             @Override
@@ -264,8 +423,10 @@ class ClientApplicationTests {
         assertNotNull(user, "Usuário deve existir no banco");
         user.getEmailConfirmation().setTokenExpiresAt(LocalDateTime.now().minusHours(1));
         userRepository.save(user);
-        String token = user.getEmailConfirmation().getToken();
+        // only the digest is stored, the plain token stays on the instance that generated it
+        String token = newUser.getEmailConfirmation().getPlainToken();
         assertNotNull(token, "Token de confirmação deve existir");
+        assertEquals(TokenData.digest(token), user.getEmailConfirmation().getToken(), "Apenas o hash do token deve ser salvo");
         ResponseEntity<Controller.StandardResponse<ConfirmEmailResponse>> response = controller.confirmEmail(token);
         assertNotNull(response.getBody(), "Response body não deve ser null");
         assertFalse(response.getBody().isSuccess(), "Confirmação deve falhar com token expirado");
@@ -275,15 +436,16 @@ class ClientApplicationTests {
 
     @Test
     void testConfirmEmailAlreadyConfirmed() {
+        User newUser = User.builder()
+                .username("kaique")
+                .email("kaiq@gmail.com")
+                .password("123456")
+                .build();
         authService.signup(
             new SignupRequest<User>() {
                 @Override
                 public User getUser() {
-                    return User.builder()
-                            .username("kaique")
-                            .email("kaiq@gmail.com")
-                            .password("123456")
-                            .build();
+                    return newUser;
                 }
 
                 @Override
@@ -295,7 +457,7 @@ class ClientApplicationTests {
         User user = userRepository.findAll().get(0);
         assertNotNull(user, "Usuário deve existir no banco");
         
-        String token = user.getEmailConfirmation().getToken();
+        String token = newUser.getEmailConfirmation().getPlainToken();
         assertNotNull(token, "Token de confirmação deve existir");
 
         // First confirmation - should succeed
@@ -489,4 +651,341 @@ class ClientApplicationTests {
         assertEquals(400, response.getStatusCode().value(), "Status code deve ser 400 para token null");
     }
 
-}
\ No newline at end of file
+    @Test
+    void testSessionHistorySlices() {
+        User user = saveUser();
+
+        for (int i = 0; i < 7; i++) {
+            userSessionLogRepository.save(UserSessionLog.builder()
+                    .user(user)
+                    .sessionOrigin(UserSessionOrigin.LOGIN.name())
+                    .ipAddress("127.0.0.1")
+                    .build());
+        }
+
+        List<SessionHistoryDto> all = new ArrayList<>();
+        String cursor = null;
+        int slices = 0;
+        do {
+            SessionHistorySlice slice = userSessionLogService.getSessionHistorySlice(user.getId(), cursor, 3, null, null);
+            all.addAll(slice.getItems());
+            cursor = slice.getNextCursor();
+            slices++;
+        } while (cursor != null);
+
+        assertEquals(3, slices, "7 logs em fatias de 3 devem gerar 3 fatias");
+        assertEquals(7, all.size(), "Todos os logs devem ser retornados");
+        for (int i = 1; i < all.size(); i++) {
+            assertTrue(all.get(i - 1).getId() > all.get(i).getId(), "Logs devem vir do mais novo para o mais antigo, sem repetição");
+        }
+
+        assertThrows(IllegalArgumentException.class,
+                () -> userSessionLogService.getSessionHistorySlice(user.getId(), "invalido", 3, null, null));
+    }
+
+    @Test
+    void testSessionHistoryExport() throws Exception {
+        User user = saveUser();
+
+        for (int i = 0; i < 5; i++) {
+            userSessionLogRepository.save(UserSessionLog.builder()
+                    .user(user)
+                    .sessionOrigin(UserSessionOrigin.LOGIN.name())
+                    .ipAddress("127.0.0.1")
+                    .userAgent("=cmd, \"agent\"")
+                    .build());
+        }
+
+        ByteArrayOutputStream ndjson = new ByteArrayOutputStream();
+        long written = userSessionLogService.exportSessionHistory(user.getId(), null, null, SessionHistoryExportFormat.NDJSON, ndjson);
+        String[] lines = ndjson.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(5, written, "Todos os logs devem ser exportados");
+        assertEquals(5, lines.length, "Uma linha por log");
+        assertTrue(lines[0].startsWith("{") && lines[0].contains("\"ipAddress\":\"127.0.0.1\""), "Linha deve ser um objeto JSON");
+
+        ByteArrayOutputStream csv = new ByteArrayOutputStream();
+        userSessionLogService.exportSessionHistory(user.getId(), null, null, SessionHistoryExportFormat.CSV, csv);
+        lines = csv.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(6, lines.length, "Cabeçalho mais uma linha por log");
+        assertEquals("id,origin,ipAddress,userAgent,performedBy,createdAt", lines[0]);
+        assertTrue(lines[1].contains(",\"'=cmd, \"\"agent\"\"\","), "User agent deve ser escapado");
+    }
+
+    @Test
+    void testLoginRegistersSession() {
+        User user = userRepository.save(User.builder()
+                .username("kaique")
+                .email("kaiq@gmail.com")
+                // hash stored before the {id} prefix, must be upgraded on login
+                .password(new BCryptPasswordEncoder().encode("Senha@123"))
+                .build());
+
+        LoginDto loginDto = new LoginDto();
+        loginDto.setUsernameOrEmail("kaiq@gmail.com");
+        loginDto.setPassword("Senha@123");
+
+        String token = authService.login(loginDto);
+        assertNotNull(token, "Token JWT deve ser retornado");
+
+        assertEquals(1, userSessionLogRepository.count(), "Login deve registrar uma sessão");
+        assertEquals(user.getId(), userSessionLogRepository.findAll().get(0).getUser().getId());
+
+        String storedHash = userRepository.findById(user.getId()).orElseThrow().getPassword();
+        assertTrue(storedHash.startsWith("{bcrypt}"), "Hash antigo deve ser atualizado no login");
+        assertTrue(passwordEncoder.matches("Senha@123", storedHash));
+    }
+
+    @Test
+    void testRefreshTokenRotation() {
+        saveUser();
+
+        JwtAuthResponse login = authService.loginWithTokens(new LoginDto("kaiq@gmail.com", "Senha@123"));
+        assertNotNull(login.getRefreshToken(), "Refresh token deve ser emitido no login");
+
+        JwtAuthResponse refreshed = authService.refresh(login.getRefreshToken());
+        assertNotNull(refreshed.getAccessToken(), "Novo token JWT deve ser retornado");
+        assertNotEquals(login.getRefreshToken(), refreshed.getRefreshToken(), "Refresh token deve ser rotacionado");
+
+        // reusing a rotated token revokes the whole family, including the newest token
+        assertThrows(IllegalArgumentException.class, () -> authService.refresh(login.getRefreshToken()));
+        assertThrows(IllegalArgumentException.class, () -> authService.refresh(refreshed.getRefreshToken()));
+
+        assertEquals(2, userSessionLogRepository.count(), "Login e refresh devem registrar sessões");
+    }
+
+    @Test
+    void testLogoutRevokesTokens() {
+        User user = saveUser();
+
+        LoginDto loginDto = new LoginDto("kaiq@gmail.com", "Senha@123");
+        JwtAuthResponse first = authService.loginWithTokens(loginDto);
+        JwtAuthResponse second = authService.loginWithTokens(loginDto);
+        assertFalse(tokenRevocationService.isRevoked(jwtTokenProvider.parseAndValidate(first.getAccessToken())));
+
+        authService.logout(first.getAccessToken(), first.getRefreshToken());
+        assertTrue(tokenRevocationService.isRevoked(jwtTokenProvider.parseAndValidate(first.getAccessToken())),
+                "Token deve ser revogado no logout");
+        assertFalse(tokenRevocationService.isRevoked(jwtTokenProvider.parseAndValidate(second.getAccessToken())),
+                "Outras sessões não devem ser afetadas");
+        assertThrows(IllegalArgumentException.class, () -> authService.refresh(first.getRefreshToken()));
+
+        authService.logoutAll(user.getId());
+        assertTrue(tokenRevocationService.isRevoked(jwtTokenProvider.parseAndValidate(second.getAccessToken())),
+                "Logout geral deve revogar todas as sessões");
+        assertThrows(IllegalArgumentException.class, () -> authService.refresh(second.getRefreshToken()));
+
+        JwtAuthResponse third = authService.loginWithTokens(loginDto);
+        assertFalse(tokenRevocationService.isRevoked(jwtTokenProvider.parseAndValidate(third.getAccessToken())),
+                "Novo login após logout geral deve ser aceito");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testTokensVerifiableWithJwks() throws Exception {
+        User user = saveUser();
+
+        String token = authService.loginWithTokens(new LoginDto("kaiq@gmail.com", "Senha@123")).getAccessToken();
+
+        ResponseEntity<Map<String, Object>> response = controller.jwks();
+        assertEquals(200, response.getStatusCode().value());
+        assertNotNull(response.getHeaders().getCacheControl());
+        List<Map<String, Object>> keys = (List<Map<String, Object>>) response.getBody().get("keys");
+        assertFalse(keys.isEmpty());
+
+        // verify the way another service would, only with the published key
+        Map<String, Object> header = new ObjectMapper().readValue(
+                Base64.getUrlDecoder().decode(token.substring(0, token.indexOf('.'))), Map.class);
+        String kid = (String) header.get("kid");
+        Map<String, Object> jwk = keys.stream().filter(k -> kid.equals(k.get("kid"))).findFirst().orElseThrow();
+        assertEquals("ES256", jwk.get("alg"));
+
+        AlgorithmParameters parameters = AlgorithmParameters.getInstance("EC");
+        parameters.init(new ECGenParameterSpec("secp256r1"));
+        ECPoint point = new ECPoint(
+                new BigInteger(1, Base64.getUrlDecoder().decode((String) jwk.get("x"))),
+                new BigInteger(1, Base64.getUrlDecoder().decode((String) jwk.get("y"))));
+        PublicKey publicKey = KeyFactory.getInstance("EC").generatePublic(
+                new ECPublicKeySpec(point, parameters.getParameterSpec(ECParameterSpec.class)));
+
+        Claims claims = Jwts.parserBuilder().setSigningKey(publicKey).build().parseClaimsJws(token).getBody();
+        assertEquals(user.getId(), claims.get("userId", Long.class));
+    }
+
+    @Test
+    void testAuthStagesAreTimed() {
+        saveUser();
+
+        authService.loginWithTokens(new LoginDto("kaiq@gmail.com", "Senha@123"));
+        assertThrows(Exception.class, () -> authService.loginWithTokens(new LoginDto("kaiq@gmail.com", "errada")));
+
+        assertNotNull(meterRegistry.find(AuthMetrics.TIMER).tags("stage", "authenticate", "outcome", "success").timer());
+        assertNotNull(meterRegistry.find(AuthMetrics.TIMER)
+                .tags("stage", "authenticate", "outcome", "error", "exception", "BadCredentialsException").timer(),
+                "Falhas devem ser separadas por outcome");
+        assertNotNull(meterRegistry.find(AuthMetrics.TIMER).tags("stage", "jwt.generate").timer());
+        assertNotNull(meterRegistry.find(AuthMetrics.TIMER).tags("stage", "session-log.register").timer());
+        assertNotNull(meterRegistry.find(AuthMetrics.TIMER).tags("stage", "repository.findByUsernameOrEmail").timer(),
+                "Consultas do repositório de usuários devem ser medidas");
+    }
+
+    @Test
+    void testEmailSentAsPrecompiledHtml() throws Exception {
+        EmailTemplate template = EmailTemplate.compile("<a href=\"{{url}}\">{{name}}</a>{{{raw}}}", "url", "name", "raw");
+        assertEquals("<a href=\"/x?a=1&amp;b=2\">&lt;b&gt;Ana&lt;/b&gt;</a><i>ok</i>",
+                template.renderToString("/x?a=1&b=2", "<b>Ana</b>", "<i>ok</i>"));
+        assertThrows(IllegalArgumentException.class, () -> EmailTemplate.compile("{{desconhecido}}", "url"));
+
+        authService.signup(new SignupRequest<User>() {
+            @Override
+            public User getUser() {
+                return User.builder()
+                        .username("kaique")
+                        .email("kaiq@gmail.com")
+                        .password("123456")
+                        .build();
+            }
+
+            @Override
+            public BaseAuthService.SignupHook<User> getHook() {
+                return null;
+            }
+        });
+
+        verify(javaMailSender, atLeastOnce()).send(any(MimeMessage.class));
+        assertEquals("text/html; charset=UTF-8", mockMimeMessage.getDataHandler().getContentType(),
+                "Email deve ser enviado como uma única parte html");
+        assertTrue(((String) mockMimeMessage.getContent()).contains("Hello, kaique!"));
+    }
+
+    @Test
+    void testBulkSignup() {
+        userRepository.save(User.builder()
+                .username("existente")
+                .email("existente@gmail.com")
+                .password("123456")
+                .build());
+
+        List<SignupRequest<User>> requests = new ArrayList<>();
+        for (String name : List.of("ana", "bia", "ana", "existente", "caio")) {
+            User user = User.builder()
+                    .username(name)
+                    .email(name + "@bulk.com")
+                    .password("123456")
+                    .other("importado")
+                    .roles(Set.of(RoleType.ROLE_USER))
+                    .build();
+            requests.add(new SignupRequest<User>() {
+                @Override
+                public User getUser() {
+                    return user;
+                }
+
+                @Override
+                public SignupHook<User> getHook() {
+                    return null;
+                }
+            });
+        }
+
+        List<BulkSignupService.Result<User>> results = new ArrayList<>();
+        BulkSignupService.Summary summary = bulkSignupService.signupAll(requests, results::add);
+
+        assertEquals(5, summary.total());
+        assertEquals(3, summary.created(), "Duplicados na importação e no banco devem ser rejeitados: " + results);
+        assertEquals(2, summary.rejected());
+        results.sort((a, b) -> Integer.compare(a.index(), b.index()));
+        assertEquals(BulkSignupService.Status.REJECTED, results.get(2).status());
+        assertEquals("Username already exists!", results.get(3).error());
+
+        User ana = userRepository.findByUsername("ana").orElseThrow();
+        assertEquals("importado", ana.getOther(), "Colunas da entidade do cliente devem ser gravadas");
+        assertEquals(Set.of(RoleType.ROLE_USER), ana.getRoles());
+        assertEquals(results.get(0).user().getId(), ana.getId());
+        String plainToken = results.get(0).user().getEmailConfirmation().getPlainToken();
+        assertTrue(ana.getEmailConfirmation().isTokenValid(plainToken), "Token de confirmação deve ser válido");
+        verify(javaMailSender, times(3)).send(any(MimeMessage.class));
+    }
+
+    @Test
+    void testExpiredTokensAreSwept() {
+        for (int i = 0; i < 5; i++) {
+            User user = User.builder()
+                    .username("sweep" + i)
+                    .email("sweep" + i + "@gmail.com")
+                    .password("123456")
+                    .build();
+            user.getEmailConfirmation().attachNewToken("confirmacao-" + i);
+            user.getPasswordRecovery().attachNewToken("recuperacao-" + i);
+            if (i < 3) {
+                user.getEmailConfirmation().setTokenExpiresAt(LocalDateTime.now().minusMinutes(1));
+            }
+            if (i == 0) {
+                user.getPasswordRecovery().setTokenExpiresAt(LocalDateTime.now().minusMinutes(1));
+            }
+            userRepository.save(user);
+        }
+
+        ExpiredTokenSweeper.SweepResult result = expiredTokenSweeper.sweep();
+
+        assertTrue(result.complete());
+        assertEquals(3, result.emailConfirmations(), "Deve limpar em vários lotes de chunk-size");
+        assertEquals(1, result.passwordRecoveries());
+        User expired = userRepository.findByUsername("sweep0").orElseThrow();
+        assertNull(expired.getEmailConfirmation().getToken());
+        assertNull(expired.getPasswordRecovery().getTokenExpiresAt());
+        assertNotNull(expired.getEmailConfirmation().getLastTokenCreatedAt(), "O cooldown de reenvio deve ser mantido");
+        User valid = userRepository.findByUsername("sweep4").orElseThrow();
+        assertTrue(valid.getEmailConfirmation().isTokenValid("confirmacao-4"), "Tokens válidos não devem ser removidos");
+        assertEquals(0, expiredTokenSweeper.sweep().emailConfirmations());
+    }
+
+    @Test
+    void testSessionLogRetentionRollsUpBeforePurging() {
+        User user = saveUser();
+
+        LocalDate today = LocalDate.now();
+        List<Object[]> logs = List.of(
+                new Object[] { UserSessionOrigin.LOGIN, 40 },
+                new Object[] { UserSessionOrigin.LOGIN, 40 },
+                new Object[] { UserSessionOrigin.REFRESH, 40 },
+                new Object[] { UserSessionOrigin.LOGIN, 35 },
+                new Object[] { UserSessionOrigin.LOGIN, 1 });
+        for (Object[] entry : logs) {
+            UserSessionLog log = userSessionLogRepository.save(UserSessionLog.builder()
+                    .user(user)
+                    .sessionOrigin(((UserSessionOrigin) entry[0]).name())
+                    .build());
+            // createdAt is set on persist, move it back afterwards
+            jdbcTemplate.update("update user_session_logs set created_at = ? where id = ?",
+                    Timestamp.valueOf(today.minusDays((Integer) entry[1]).atTime(12, 0)), log.getId());
+        }
+
+        SessionLogRetentionService.RetentionResult result = sessionLogRetentionService.run();
+
+        assertTrue(result.complete());
+        assertEquals(2, result.rolledUpDays());
+        assertEquals(4, result.deletedLogs(), "Logs fora da retenção devem ser removidos em lotes");
+        assertEquals(1, userSessionLogRepository.count());
+
+        List<SessionLogDailyRollup> rollups = sessionLogDailyRollupRepository.findByUserIdBetween(
+                user.getId(), today.minusDays(60), today);
+        assertEquals(3, rollups.size());
+        assertEquals(today.minusDays(40), rollups.get(0).getLogDate());
+        assertEquals("LOGIN", rollups.get(0).getSessionOrigin());
+        assertEquals(2L, rollups.get(0).getLoginCount());
+        assertEquals(1L, rollups.get(1).getLoginCount());
+        assertEquals(today.minusDays(35), rollups.get(2).getLogDate());
+
+        SessionLogRetentionService.RetentionResult again = sessionLogRetentionService.run();
+        assertEquals(0, again.rolledUpDays(), "Dias já consolidados não devem ser contados de novo");
+        assertEquals(0, again.deletedLogs());
+    }
+
+    private User saveUser() {
+        return userRepository.save(User.builder()
+                .username("kaique")
+                .email("kaiq@gmail.com")
+                .password(passwordEncoder.encode("Senha@123"))
+                .build());
+    }
+}
@@ -0,0 +1,307 @@
+package kaiquebt.dev.client;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Import;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+import kaiquebt.dev.auth.config.MailConfiguration.CustomMailSenderWrapper;
+import kaiquebt.dev.auth.service.BaseAuthService;
+import kaiquebt.dev.auth.service.BaseAuthService.SignupHook;
+import kaiquebt.dev.auth.service.BaseAuthService.SignupRequest;
+import kaiquebt.dev.client.model.User;
+import kaiquebt.dev.client.model.UserSessionLog;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-process load harness: the real application on a random port, driven over HTTP by
+ * many concurrent clients. Skipped unless run with -Dloadtest=true, e.g.
+ *
+ *   mvn test -Dtest=ClientLoadTests -Dloadtest=true -Dloadtest.users=500 -Dloadtest.concurrency=64
+ *
+ * Writes throughput and p50/p99/p999 latency per scenario to target/load-test-summary.json.
+ * Optional features can be switched on the same way, e.g. -Dkaiquebt.dev.auth.user-cache.enabled=true
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:loadtestdb",
+        "spring.datasource.driverClassName=org.h2.Driver",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.mail.host=localhost",
+        "spring.mail.port=3025",
+        "spring.mail.username=test@test.com",
+        "spring.mail.password=test",
+        "kaiquebt.dev.auth.jwt-secret=daf66e01593f61a15b857cf433aae03a005812b31234e149036bcc8dee755dbb",
+        "kaiquebt.dev.auth.jwt-expiration-milliseconds=3600000",
+        "kaiquebt.dev.auth.external-url=http://localhost:8080"
+})
+@Import(ClientLoadTests.SignupEndpoint.class)
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@Slf4j
+class ClientLoadTests {
+    private static final String PASSWORD = "Senha@123";
+
+    private final int users = Integer.getInteger("loadtest.users", 200);
+    private final int concurrency = Integer.getInteger("loadtest.concurrency", 32);
+    private final int readsPerUser = Integer.getInteger("loadtest.reads-per-user", 5);
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @MockitoBean
+    private JavaMailSender javaMailSender;
+
+    @MockitoBean
+    private CustomMailSenderWrapper customMailSenderWrapper;
+
+    private final HttpClient http = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    /**
+     * The app has no signup route, the library leaves it to the client. This one mirrors
+     * the README example and hands back the confirmation token the email would carry
+     */
+    @TestConfiguration
+    @RestController
+    static class SignupEndpoint {
+        @Autowired
+        private BaseAuthService<User, UserSessionLog> authService;
+
+        @Autowired
+        private PasswordEncoder passwordEncoder;
+
+        private static final SignupHook<User> HOOK = new SignupHook<>() {
+            @Override
+            public void customValidation(User user, SignupRequest<User> request) {}
+
+            @Override
+            public void beforeSave(User user, SignupRequest<User> request) {}
+
+            @Override
+            public void afterSave(User user, SignupRequest<User> request) {}
+
+            @Override
+            public void onError(Exception error, User user, SignupRequest<User> request) {}
+        };
+
+        @PostMapping("/load-test/signup")
+        public String signup(@RequestParam String username, @RequestParam String email, @RequestParam String password) {
+            // users.password is not null, the client hashes it like any signup would
+            User user = User.builder()
+                    .username(username)
+                    .email(email)
+                    .password(passwordEncoder.encode(password))
+                    .build();
+            authService.signup(new SignupRequest<User>() {
+                @Override
+                public User getUser() {
+                    return user;
+                }
+
+                @Override
+                public SignupHook<User> getHook() {
+                    return HOOK;
+                }
+            });
+            return user.getEmailConfirmation().getPlainToken();
+        }
+    }
+
+    private record Sample(int status, long latencyNanos) {}
+
+    @BeforeAll
+    void setup() {
+        // a message per call, the mail sender is hit from many threads at once
+        when(javaMailSender.createMimeMessage()).thenAnswer(invocation -> new MimeMessage((Session) null));
+        doNothing().when(javaMailSender).send(any(MimeMessage.class));
+        when(customMailSenderWrapper.isPresent()).thenReturn(false);
+        when(customMailSenderWrapper.getMailSender()).thenReturn(null);
+    }
+
+    @Test
+    void runLoad() throws Exception {
+        String runId = Long.toString(System.currentTimeMillis(), 36);
+        String[] confirmTokens = new String[users];
+        String[] accessTokens = new String[users];
+        List<Map<String, Object>> scenarios = new ArrayList<>();
+
+        scenarios.add(run("signup", users, i -> {
+            HttpResponse<String> response = post("/load-test/signup",
+                    "username=" + encode("load" + runId + i)
+                    + "&email=" + encode("load" + runId + i + "@example.com")
+                    + "&password=" + encode(PASSWORD),
+                    "application/x-www-form-urlencoded");
+            confirmTokens[i] = response.body();
+            return response.statusCode();
+        }));
+
+        scenarios.add(run("confirm-email", users, i -> send(HttpRequest.newBuilder(uri(
+                "/api/auth/confirm-email?token=" + encode(confirmTokens[i]))).GET().build()).statusCode()));
+
+        scenarios.add(run("login", users, i -> {
+            HttpResponse<String> response = post("/api/auth/login",
+                    objectMapper.writeValueAsString(Map.of(
+                            "usernameOrEmail", "load" + runId + i + "@example.com",
+                            "password", PASSWORD)),
+                    "application/json");
+            accessTokens[i] = dataField(response, "accessToken");
+            return response.statusCode();
+        }));
+
+        scenarios.add(run("authenticated-read", users * readsPerUser, i -> send(HttpRequest.newBuilder(uri(
+                "/api/auth/session-history/export?format=ndjson"))
+                .header("Authorization", "Bearer " + accessTokens[i % users])
+                .GET().build()).statusCode()));
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("users", users);
+        summary.put("concurrency", concurrency);
+        summary.put("readsPerUser", readsPerUser);
+        summary.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+        summary.put("scenarios", scenarios);
+
+        String json = objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(summary);
+        Path output = Path.of("target", "load-test-summary.json");
+        Files.createDirectories(output.getParent());
+        Files.writeString(output, json);
+        log.info("Load test summary written to {}:\n{}", output.toAbsolutePath(), json);
+
+        for (Map<String, Object> scenario : scenarios) {
+            assertEquals(0L, scenario.get("errors"), "Requisições com erro em " + scenario.get("name"));
+        }
+    }
+
+    private interface Call {
+        int execute(int index) throws Exception;
+    }
+
+    /**
+     * Runs requests calls spread over the configured number of concurrent clients and
+     * returns the summary of the scenario. Any status other than 2xx counts as an error
+     */
+    private Map<String, Object> run(String name, int requests, Call call) throws Exception {
+        ConcurrentLinkedQueue<Sample> samples = new ConcurrentLinkedQueue<>();
+        AtomicInteger next = new AtomicInteger();
+        ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+
+        long start = System.nanoTime();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int c = 0; c < concurrency; c++) {
+            futures.add(clients.submit(() -> {
+                int i;
+                while ((i = next.getAndIncrement()) < requests) {
+                    long t0 = System.nanoTime();
+                    int status;
+                    try {
+                        status = call.execute(i);
+                    } catch (Exception e) {
+                        status = -1;
+                    }
+                    samples.add(new Sample(status, System.nanoTime() - t0));
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long elapsed = System.nanoTime() - start;
+        clients.shutdown();
+
+        long[] latencies = samples.stream().mapToLong(Sample::latencyNanos).sorted().toArray();
+        Map<Integer, Long> statuses = new LinkedHashMap<>();
+        samples.forEach(s -> statuses.merge(s.status(), 1L, Long::sum));
+        long errors = samples.stream().filter(s -> s.status() < 200 || s.status() >= 300).count();
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("name", name);
+        result.put("requests", latencies.length);
+        result.put("errors", errors);
+        result.put("statuses", statuses);
+        result.put("durationMs", elapsed / 1_000_000);
+        result.put("throughputPerSec", Math.round(latencies.length / (elapsed / 1e9) * 10) / 10.0);
+        result.put("p50Ms", percentile(latencies, 0.50));
+        result.put("p99Ms", percentile(latencies, 0.99));
+        result.put("p999Ms", percentile(latencies, 0.999));
+        result.put("maxMs", latencies.length == 0 ? 0 : latencies[latencies.length - 1] / 1e6);
+        return result;
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return Math.round(sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e3) / 1e3;
+    }
+
+    private String dataField(HttpResponse<String> response, String field) throws Exception {
+        JsonNode value = objectMapper.readTree(response.body()).path("data").path(field);
+        return value.isTextual() ? value.asText() : null;
+    }
+
+    private HttpResponse<String> post(String path, String body, String contentType) throws Exception {
+        return send(HttpRequest.newBuilder(uri(path))
+                .header("Content-Type", contentType)
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build());
+    }
+
+    private HttpResponse<String> send(HttpRequest request) throws Exception {
+        return http.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,203 @@
+package kaiquebt.dev.client;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+import kaiquebt.dev.auth.config.MailConfiguration.CustomMailSenderWrapper;
+import kaiquebt.dev.auth.model.EmailOutboxStatus;
+import kaiquebt.dev.auth.service.BaseAuthService;
+import kaiquebt.dev.auth.service.BaseAuthService.SignupHook;
+import kaiquebt.dev.auth.service.BaseAuthService.SignupRequest;
+import kaiquebt.dev.auth.service.EmailOutboxService;
+import kaiquebt.dev.auth.service.EmailOutboxService.EmailEnqueuedEvent;
+import kaiquebt.dev.client.model.EmailOutboxMessage;
+import kaiquebt.dev.client.model.User;
+import kaiquebt.dev.client.model.UserSessionLog;
+import kaiquebt.dev.client.repository.EmailOutboxRepository;
+import kaiquebt.dev.client.repository.UserRepository;
+
+/**
+ * The outbox end to end against H2: enqueue in the signup transaction, claim, send,
+ * retry with backoff and DEAD. The scheduled poll is an hour away, polls only happen
+ * after a commit or when a test asks for one
+ */
+@SpringBootTest
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:outboxdb",
+        "spring.datasource.driverClassName=org.h2.Driver",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.mail.host=localhost",
+        "spring.mail.port=3025",
+        "spring.mail.username=test@test.com",
+        "spring.mail.password=test",
+        "kaiquebt.dev.auth.jwt-secret=daf66e01593f61a15b857cf433aae03a005812b31234e149036bcc8dee755dbb",
+        "kaiquebt.dev.auth.jwt-expiration-milliseconds=3600000",
+        "kaiquebt.dev.auth.external-url=http://localhost:8080",
+        "kaiquebt.dev.auth.mail.outbox.enabled=true",
+        "kaiquebt.dev.auth.mail.outbox.workers=1",
+        "kaiquebt.dev.auth.mail.outbox.poll-interval-ms=3600000",
+        "kaiquebt.dev.auth.mail.outbox.max-attempts=3",
+        "kaiquebt.dev.auth.mail.outbox.initial-backoff-ms=200",
+        "kaiquebt.dev.auth.mail.outbox.max-backoff-ms=400"
+})
+class EmailOutboxTests {
+
+    @Autowired
+    private BaseAuthService<User, UserSessionLog> authService;
+
+    @Autowired
+    private EmailOutboxService<EmailOutboxMessage> outboxService;
+
+    @Autowired
+    private EmailOutboxRepository outboxRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockitoBean
+    private JavaMailSender javaMailSender;
+
+    @MockitoBean
+    private CustomMailSenderWrapper customMailSenderWrapper;
+
+    @BeforeEach
+    void beforeEach() {
+        outboxRepository.deleteAll();
+        userRepository.deleteAll();
+
+        reset(javaMailSender);
+        when(javaMailSender.createMimeMessage()).thenAnswer(invocation -> new MimeMessage((Session) null));
+        when(customMailSenderWrapper.isPresent()).thenReturn(false);
+    }
+
+    @Test
+    void testEmailIsSentAfterCommit() {
+        signup("kaique", "kaiq@gmail.com");
+
+        EmailOutboxMessage message = awaitStatus(EmailOutboxStatus.SENT, 1);
+
+        assertEquals("kaiq@gmail.com", message.getRecipient());
+        assertEquals(1, message.getAttempts());
+        assertNotNull(message.getSentAt());
+        assertNull(message.getBody(), "O corpo com o token deve ser apagado após o envio");
+        verify(javaMailSender, times(1)).send(any(MimeMessage.class));
+    }
+
+    @Test
+    void testFailedSendIsRetriedWithBackoffThenDead() {
+        doThrow(new MailSendException("smtp fora do ar")).when(javaMailSender).send(any(MimeMessage.class));
+        signup("kaique", "kaiq@gmail.com");
+
+        EmailOutboxMessage retrying = awaitStatus(EmailOutboxStatus.PENDING, 1);
+        assertFalse(retrying.getNextAttemptAt().isBefore(retrying.getCreatedAt().plus(Duration.ofMillis(200))),
+                "A próxima tentativa deve respeitar o backoff");
+        assertEquals("MailSendException: smtp fora do ar", retrying.getLastError());
+
+        EmailOutboxMessage dead = awaitStatus(EmailOutboxStatus.DEAD, 3);
+        assertNotNull(dead.getBody(), "Mensagens DEAD mantêm o corpo para um novo envio");
+        verify(javaMailSender, times(3)).send(any(MimeMessage.class));
+
+        doNothing().when(javaMailSender).send(any(MimeMessage.class));
+        assertTrue(outboxService.retry(dead.getId()));
+
+        EmailOutboxMessage sent = awaitStatus(EmailOutboxStatus.SENT, 1);
+        assertNull(sent.getLastError());
+        assertFalse(outboxService.retry(sent.getId()), "Só mensagens DEAD podem voltar para a fila");
+    }
+
+    @Test
+    void testLateWorkerCannotOverwriteReclaimedMessage() {
+        // saved without an enqueue event, so the dispatcher leaves it alone
+        EmailOutboxMessage message = outboxRepository.save(EmailOutboxMessage.builder()
+                .recipient("kaiq@gmail.com")
+                .subject("Confirme seu email")
+                .body("<p>token</p>")
+                .build());
+
+        // the first worker claimed it and stalled until its lease expired
+        LocalDateTime expiredLease = LocalDateTime.now().minusSeconds(5).truncatedTo(ChronoUnit.SECONDS);
+        jdbcTemplate.update("update email_outbox set status = 'SENDING', next_attempt_at = ? where id = ?",
+                Timestamp.valueOf(expiredLease), message.getId());
+
+        LocalDateTime lease = outboxService.claim(message.getId());
+        assertNotNull(lease, "Mensagens com lease expirado devem poder ser reservadas de novo");
+        assertNull(outboxService.claim(message.getId()), "Mensagens com lease ativo não podem ser reservadas");
+        assertTrue(outboxService.markSent(message.getId(), lease));
+
+        assertFalse(outboxService.markFailed(message, expiredLease, new MailSendException("timeout")));
+        assertFalse(outboxService.markSent(message.getId(), expiredLease));
+
+        EmailOutboxMessage stored = outboxRepository.findById(message.getId()).orElseThrow();
+        assertEquals(EmailOutboxStatus.SENT, stored.getStatus(), "O worker atrasado não pode devolver a mensagem para a fila");
+        assertEquals(1, stored.getAttempts());
+        assertNull(stored.getLastError());
+    }
+
+    private void signup(String username, String email) {
+        authService.signup(new SignupRequest<User>() {
+            @Override
+            public User getUser() {
+                return User.builder()
+                        .username(username)
+                        .email(email)
+                        .password("123456")
+                        .build();
+            }
+
+            @Override
+            public SignupHook<User> getHook() {
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Waits for the only message in the outbox to reach the status after the given attempts,
+     * asking the dispatcher for a poll each time since the scheduled one is an hour away
+     */
+    private EmailOutboxMessage awaitStatus(EmailOutboxStatus status, int attempts) {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (System.currentTimeMillis() < deadline) {
+            List<EmailOutboxMessage> messages = outboxRepository.findAll();
+            if (messages.size() == 1 && messages.get(0).getStatus() == status && messages.get(0).getAttempts() == attempts) {
+                return messages.get(0);
+            }
+            eventPublisher.publishEvent(new EmailEnqueuedEvent());
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        fail("Mensagem não chegou a " + status + " com " + attempts + " tentativas: " + outboxRepository.findAll());
+        return null;
+    }
+}